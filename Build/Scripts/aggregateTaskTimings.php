@@ -0,0 +1,132 @@
+#!/usr/bin/env php
+<?php
+declare(strict_types = 1);
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+if (PHP_SAPI !== 'cli') {
+    die('Script must be called from command line.' . chr(10));
+}
+
+/**
+ * Core task timings aggregation script:
+ *
+ * Reads the task-timings.json files written by each job of a bamboo plan run
+ * and sums up task durations by task type, database, PHP version and by the
+ * combination of the three. Numbers in task descriptions are replaced by "N",
+ * so chunks of the same task are one type. The biggest groups are printed,
+ * the full breakdown is written as json.
+ *
+ * Usage: aggregateTaskTimings.php <timingsDirectory> <targetReport>
+ */
+class aggregateTaskTimings
+{
+    /**
+     * Number of groups printed per breakdown
+     */
+    const PRINTED_GROUPS = 15;
+
+    /**
+     * Executes the aggregation.
+     * The return value is used directly in the exit() call outside this class.
+     *
+     * @param array $arguments
+     * @return int
+     */
+    public function execute(array $arguments): int
+    {
+        if (count($arguments) !== 2) {
+            echo 'Usage: aggregateTaskTimings.php <timingsDirectory> <targetReport>' . chr(10);
+            return 1;
+        }
+        list($directory, $target) = $arguments;
+
+        $breakdowns = [
+            'taskType' => [],
+            'database' => [],
+            'php' => [],
+            'taskTypeDatabasePhp' => [],
+        ];
+        $jobs = 0;
+        foreach (glob(rtrim($directory, '/') . '/*/task-timings.json') as $file) {
+            $job = json_decode((string)file_get_contents($file), true);
+            if (!is_array($job) || !is_array($job['tasks'] ?? null)) {
+                echo 'Skipped unreadable timings ' . $file . chr(10);
+                continue;
+            }
+            $jobs++;
+            foreach ($job['tasks'] as $task) {
+                $taskType = preg_replace('/\d+/', 'N', $task['description']);
+                $seconds = $task['durationMs'] / 1000;
+                $failed = $task['exitCode'] !== 0;
+                $this->add($breakdowns['taskType'], $taskType, $seconds, $failed);
+                $this->add($breakdowns['database'], $job['db'], $seconds, $failed);
+                $this->add($breakdowns['php'], $job['php'], $seconds, $failed);
+                $this->add($breakdowns['taskTypeDatabasePhp'], $taskType . ' | ' . $job['db'] . ' | ' . $job['php'], $seconds, $failed);
+            }
+        }
+        if ($jobs === 0) {
+            echo 'No task timings found in ' . $directory . chr(10);
+            return 1;
+        }
+
+        foreach ($breakdowns as $name => $groups) {
+            uasort($groups, function (array $a, array $b) {
+                return $b['totalSeconds'] <=> $a['totalSeconds'];
+            });
+            $breakdowns[$name] = $groups;
+            echo chr(10) . 'Task time by ' . $name . ' of ' . $jobs . ' jobs:' . chr(10);
+            printf('%10s %6s %8s %8s %6s  %s' . chr(10), 'total s', 'count', 'avg s', 'max s', 'failed', 'group');
+            foreach (array_slice($groups, 0, self::PRINTED_GROUPS, true) as $group => $values) {
+                printf(
+                    '%10.1f %6d %8.1f %8.1f %6d  %s' . chr(10),
+                    $values['totalSeconds'],
+                    $values['count'],
+                    $values['totalSeconds'] / $values['count'],
+                    $values['maxSeconds'],
+                    $values['failed'],
+                    $group
+                );
+            }
+        }
+        file_put_contents($target, json_encode(['jobs' => $jobs] + $breakdowns, JSON_PRETTY_PRINT | JSON_UNESCAPED_SLASHES));
+        return 0;
+    }
+
+    /**
+     * Add a task duration to a group of a breakdown
+     *
+     * @param array $groups
+     * @param string $group
+     * @param float $seconds
+     * @param bool $failed
+     */
+    private function add(array &$groups, string $group, float $seconds, bool $failed)
+    {
+        if (!isset($groups[$group])) {
+            $groups[$group] = [
+                'count' => 0,
+                'totalSeconds' => 0.0,
+                'maxSeconds' => 0.0,
+                'failed' => 0,
+            ];
+        }
+        $groups[$group]['count']++;
+        $groups[$group]['totalSeconds'] += $seconds;
+        $groups[$group]['maxSeconds'] = max($groups[$group]['maxSeconds'], $seconds);
+        $groups[$group]['failed'] += $failed ? 1 : 0;
+    }
+}
+
+$aggregator = new aggregateTaskTimings();
+exit($aggregator->execute(array_slice($argv, 1)));
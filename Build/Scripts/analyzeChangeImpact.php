@@ -0,0 +1,276 @@
+#!/usr/bin/env php
+<?php
+declare(strict_types = 1);
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+if (PHP_SAPI !== 'cli') {
+    die('Script must be called from command line.' . chr(10));
+}
+
+/**
+ * Core change impact script:
+ *
+ * Find test suites affected by the files changed in a patch set, used by the
+ * pre-merge plan to skip jobs of unaffected suites. This script does not need
+ * composer dependencies, it runs before they are installed.
+ *
+ * Changed extensions are extended by all extensions depending on them,
+ * dependencies are read from composer.json and ext_emconf.php of each system
+ * extension. Files of EXT:core, and files outside of typo3/sysext/, are
+ * infrastructure and affect all suites. Documentation/ directories of other
+ * system extensions and top level *.md and *.rst files affect no suite.
+ *
+ * For each given job whose suite is not affected, a marker file
+ * unaffected-<jobKey> is written to the output directory, together with a
+ * JUnit report unaffected.xml the skipped jobs use as test result.
+ *
+ * Usage: analyzeChangeImpact.php <changedFilesList> <outputDir> <jobKey>:<suite> [<jobKey>:<suite> ...]
+ */
+class analyzeChangeImpact
+{
+    /**
+     * Suites a job can belong to
+     *
+     * @var array
+     */
+    private $suites = [
+        'unit',
+        'functional',
+        'acceptance',
+        'javascript',
+        'lint-php',
+        'lint-frontend',
+    ];
+
+    /**
+     * Extensions whose changes always trigger all suites
+     *
+     * @var array
+     */
+    private $infrastructureExtensions = [
+        'core',
+    ];
+
+    /**
+     * @var string
+     */
+    private $sysextPath;
+
+    public function __construct()
+    {
+        $this->sysextPath = realpath(__DIR__ . '/../../typo3/sysext') . '/';
+    }
+
+    /**
+     * Executes the analysis.
+     * The return value is used directly in the exit() call outside this class.
+     *
+     * @param array $arguments
+     * @return int
+     */
+    public function execute(array $arguments): int
+    {
+        if (count($arguments) < 2) {
+            echo 'Usage: analyzeChangeImpact.php <changedFilesList> <outputDir> <jobKey>:<suite> [<jobKey>:<suite> ...]' . chr(10);
+            return 1;
+        }
+        $changedFilesList = array_shift($arguments);
+        $outputDir = rtrim(array_shift($arguments), '/') . '/';
+        $jobSuites = [];
+        foreach ($arguments as $argument) {
+            list($jobKey, $suite) = explode(':', $argument, 2);
+            if (!in_array($suite, $this->suites, true)) {
+                echo 'Unknown suite ' . $suite . ' of job ' . $jobKey . chr(10);
+                return 1;
+            }
+            $jobSuites[$jobKey] = $suite;
+        }
+
+        $changedFiles = is_file($changedFilesList) ? file($changedFilesList, FILE_IGNORE_NEW_LINES | FILE_SKIP_EMPTY_LINES) : false;
+        if (empty($changedFiles)) {
+            // No patch set or no diff: Better safe than sorry
+            echo 'No changed files found, all suites are affected' . chr(10);
+            $affectedSuites = $this->suites;
+        } else {
+            $affectedSuites = $this->getAffectedSuites($changedFiles);
+        }
+
+        if (!is_dir($outputDir)) {
+            mkdir($outputDir, 0777, true);
+        }
+        file_put_contents($outputDir . 'affected-suites.txt', implode(chr(10), $affectedSuites) . chr(10));
+        echo 'Affected suites: ' . (empty($affectedSuites) ? 'none' : implode(', ', $affectedSuites)) . chr(10);
+        foreach ($jobSuites as $jobKey => $suite) {
+            if (!in_array($suite, $affectedSuites, true)) {
+                file_put_contents($outputDir . 'unaffected-' . $jobKey, $suite . chr(10));
+                echo 'skipped: unaffected ' . $jobKey . ' (' . $suite . ')' . chr(10);
+            }
+        }
+        file_put_contents(
+            $outputDir . 'unaffected.xml',
+            '<?xml version="1.0" encoding="UTF-8"?>' . chr(10)
+            . '<testsuites>' . chr(10)
+            . '  <testsuite name="unaffected" tests="1" failures="0" errors="0" skipped="1" time="0">' . chr(10)
+            . '    <testcase name="skipped: unaffected" classname="unaffected" time="0">' . chr(10)
+            . '      <skipped message="skipped: unaffected"/>' . chr(10)
+            . '    </testcase>' . chr(10)
+            . '  </testsuite>' . chr(10)
+            . '</testsuites>' . chr(10)
+        );
+        return 0;
+    }
+
+    /**
+     * @param array $changedFiles Paths relative to the project root
+     * @return array
+     */
+    private function getAffectedSuites(array $changedFiles): array
+    {
+        $changedExtensions = [];
+        $fileExtensions = [];
+        foreach ($changedFiles as $changedFile) {
+            $isSysextFile = (bool)preg_match('#^typo3/sysext/([^/]+)/#', $changedFile, $matches);
+            if ($isSysextFile && in_array($matches[1], $this->infrastructureExtensions, true)) {
+                echo 'Infrastructure file ' . $changedFile . ' changed, all suites are affected' . chr(10);
+                return $this->suites;
+            }
+            if ($this->isDocumentation($changedFile)) {
+                continue;
+            }
+            if (!$isSysextFile) {
+                echo 'Infrastructure file ' . $changedFile . ' changed, all suites are affected' . chr(10);
+                return $this->suites;
+            }
+            $changedExtensions[$matches[1]] = true;
+            $fileExtensions[strtolower(pathinfo($changedFile, PATHINFO_EXTENSION))] = true;
+        }
+        if (empty($changedExtensions)) {
+            return [];
+        }
+
+        $affectedExtensions = $this->getDependentExtensions(array_keys($changedExtensions));
+        echo 'Affected extensions: ' . implode(', ', $affectedExtensions) . chr(10);
+
+        $affectedSuites = [];
+        foreach ($affectedExtensions as $extension) {
+            if (is_dir($this->sysextPath . $extension . '/Tests/Unit')) {
+                $affectedSuites['unit'] = true;
+            }
+            if (is_dir($this->sysextPath . $extension . '/Tests/Functional')) {
+                $affectedSuites['functional'] = true;
+            }
+        }
+        // Acceptance tests click through the whole backend
+        $affectedSuites['acceptance'] = true;
+        if (isset($fileExtensions['php'])) {
+            $affectedSuites['lint-php'] = true;
+        }
+        if (array_intersect_key($fileExtensions, array_flip(['js', 'ts']))) {
+            $affectedSuites['javascript'] = true;
+        }
+        if (array_intersect_key($fileExtensions, array_flip(['js', 'ts', 'scss', 'css']))) {
+            $affectedSuites['lint-frontend'] = true;
+        }
+        return array_values(array_intersect($this->suites, array_keys($affectedSuites)));
+    }
+
+    /**
+     * Documentation/ directories of system extensions and top level *.md
+     * and *.rst files are covered by the integration jobs that always run
+     * and affect no test suite. Other *.md, *.rst and *.xlf files may be
+     * fixtures or labels of tested code and are no documentation.
+     *
+     * @param string $file
+     * @return bool
+     */
+    private function isDocumentation(string $file): bool
+    {
+        return (bool)preg_match('#^(typo3/sysext/[^/]+/Documentation/|[^/]+\.(md|rst)$)#', $file);
+    }
+
+    /**
+     * Given extensions plus all extensions depending on them, directly or transitive
+     *
+     * @param array $extensions
+     * @return array
+     */
+    private function getDependentExtensions(array $extensions): array
+    {
+        $dependencies = $this->getDependencyMap();
+        $affected = array_fill_keys($extensions, true);
+        do {
+            $found = false;
+            foreach ($dependencies as $extension => $extensionDependencies) {
+                if (!isset($affected[$extension]) && array_intersect_key($affected, $extensionDependencies)) {
+                    $affected[$extension] = true;
+                    $found = true;
+                }
+            }
+        } while ($found);
+        $affected = array_keys($affected);
+        sort($affected);
+        return $affected;
+    }
+
+    /**
+     * Dependencies of all system extensions from composer.json and ext_emconf.php
+     *
+     * @return array Extension key => [dependency extension key => true]
+     */
+    private function getDependencyMap(): array
+    {
+        $packageToExtension = [];
+        $composerJsons = [];
+        foreach (glob($this->sysextPath . '*/composer.json') as $composerJsonFile) {
+            $extension = basename(dirname($composerJsonFile));
+            $composerJson = json_decode(file_get_contents($composerJsonFile), true);
+            $composerJsons[$extension] = $composerJson;
+            $packageToExtension[$composerJson['name']] = $extension;
+        }
+        $dependencies = [];
+        foreach ($composerJsons as $extension => $composerJson) {
+            $dependencies[$extension] = [];
+            foreach (array_keys($composerJson['require'] ?? []) as $package) {
+                if (isset($packageToExtension[$package])) {
+                    $dependencies[$extension][$packageToExtension[$package]] = true;
+                }
+            }
+            foreach ($this->getEmconfDependencies($extension) as $dependency) {
+                if (isset($composerJsons[$dependency])) {
+                    $dependencies[$extension][$dependency] = true;
+                }
+            }
+        }
+        return $dependencies;
+    }
+
+    /**
+     * @param string $extension
+     * @return array Extension keys of the 'depends' constraint
+     */
+    private function getEmconfDependencies(string $extension): array
+    {
+        $emconfFile = $this->sysextPath . $extension . '/ext_emconf.php';
+        if (!is_file($emconfFile)) {
+            return [];
+        }
+        $_EXTKEY = $extension;
+        $EM_CONF = [];
+        include $emconfFile;
+        return array_keys($EM_CONF[$_EXTKEY]['constraints']['depends'] ?? []);
+    }
+}
+
+$analyzer = new analyzeChangeImpact();
+exit($analyzer->execute(array_slice($argv, 1)));
@@ -0,0 +1,126 @@
+#!/usr/bin/env php
+<?php
+declare(strict_types = 1);
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+require __DIR__ . '/../../vendor/autoload.php';
+
+if (PHP_SAPI !== 'cli') {
+    die('Script must be called from command line.' . chr(10));
+}
+
+use TYPO3\CMS\Core\Database\Schema\SchemaMigrator;
+use TYPO3\CMS\Core\Database\Schema\SqlReader;
+use TYPO3\CMS\Core\Utility\GeneralUtility;
+use TYPO3\TestingFramework\Core\Testbase;
+
+/**
+ * Core functional test database template script:
+ *
+ * Create the tables of the core extensions every functional test loads in the
+ * database the DBMS copies for each CREATE DATABASE: template1 on postgres,
+ * model on mssql. Each functional test case creates its own database, which
+ * then only needs the tables and fields of its additional extensions.
+ * No static data is imported, the test cases still do that themselves.
+ *
+ * There is no template for mysql/mariadb and sqlite: the testing framework
+ * drops the database "<typo3DatabaseName>_ft<identifier>" of a test case, or
+ * unlinks its sqlite file in typo3temp/var/tests/functional-sqlite-dbs/, before
+ * it creates it again, so neither a pre-loaded dump nor a pre-built sqlite file
+ * survives. Mariadb has no template database to copy from and sqlite databases
+ * are created as empty files by the doctrine schema manager.
+ *
+ * Database credentials are read from the same typo3Database* environment
+ * variables as the functional tests.
+ *
+ * Usage: createFunctionalTestDatabaseTemplate.php
+ */
+class createFunctionalTestDatabaseTemplate
+{
+    /**
+     * Template database of each supported driver
+     *
+     * @var array
+     */
+    private $templateDatabases = [
+        'pdo_pgsql' => 'template1',
+        'sqlsrv' => 'model',
+    ];
+
+    /**
+     * Core extensions loaded by every functional test case
+     *
+     * @var array
+     */
+    private $coreExtensionsToLoad = [
+        'core',
+        'backend',
+        'frontend',
+        'extbase',
+        'install',
+        'recordlist',
+        'fluid',
+    ];
+
+    /**
+     * Executes the template creation.
+     * The return value is used directly in the exit() call outside this class.
+     *
+     * @return int
+     */
+    public function execute(): int
+    {
+        $testbase = new Testbase();
+        $testbase->enableDisplayErrors();
+        $testbase->defineBaseConstants();
+        $testbase->defineOriginalRootPath();
+        $testbase->defineTypo3ModeBe();
+        $testbase->setTypo3TestingContext();
+
+        $databaseConfiguration = $testbase->getOriginalDatabaseSettingsFromEnvironmentOrLocalConfiguration();
+        $driver = $databaseConfiguration['Connections']['Default']['driver'] ?? '';
+        if (!isset($this->templateDatabases[$driver])) {
+            echo 'No template database for driver "' . $driver . '", supported: ' . implode(', ', array_keys($this->templateDatabases)) . chr(10);
+            return 1;
+        }
+        $databaseConfiguration['Connections']['Default']['dbname'] = $this->templateDatabases[$driver];
+
+        $instancePath = ORIGINAL_ROOT . 'typo3temp/var/tests/functional-template';
+        $testbase->removeOldInstanceIfExists($instancePath);
+        $testbase->createDirectory($instancePath . '/typo3temp/var/transient');
+        $testbase->createDirectory($instancePath . '/typo3conf/ext');
+        $testbase->setUpInstanceCoreLinks($instancePath);
+        $testbase->setUpLocalConfiguration($instancePath, ['DB' => $databaseConfiguration], []);
+        $testbase->setUpPackageStates($instancePath, $this->coreExtensionsToLoad, [], [], []);
+        $testbase->setUpBasicTypo3Bootstrap($instancePath);
+        $testbase->loadExtensionTables();
+
+        $sqlReader = GeneralUtility::makeInstance(SqlReader::class);
+        $createTableStatements = $sqlReader->getCreateTableStatementArray($sqlReader->getTablesDefinitionString(true));
+        $failedStatements = array_filter(GeneralUtility::makeInstance(SchemaMigrator::class)->install($createTableStatements));
+        foreach ($failedStatements as $statement => $error) {
+            echo 'Query "' . $statement . '" returned "' . $error . '"' . chr(10);
+        }
+        $testbase->removeOldInstanceIfExists($instancePath);
+        if (!empty($failedStatements)) {
+            return 1;
+        }
+        echo 'Created ' . count($createTableStatements) . ' tables in template database '
+            . $this->templateDatabases[$driver] . ' of driver ' . $driver . chr(10);
+        return 0;
+    }
+}
+
+$template = new createFunctionalTestDatabaseTemplate();
+exit($template->execute());
@@ -0,0 +1,105 @@
+#!/usr/bin/env php
+<?php
+declare(strict_types = 1);
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+if (PHP_SAPI !== 'cli') {
+    die('Script must be called from command line.' . chr(10));
+}
+
+/**
+ * Core JUnit merge script:
+ *
+ * Merge the JUnit reports of parallel test workers into one report.
+ * The top level test suites of all given reports are added to a new
+ * testsuites root element of the target report.
+ *
+ * A source report given as <label>=<report> gets the label as prefix of
+ * its test suite and test case class names. Reports of the same tests run
+ * in different environments then stay apart.
+ *
+ * Usage: mergeJunitReports.php <targetReport> [<label>=]<sourceReport> [[<label>=]<sourceReport> ...]
+ */
+class mergeJunitReports
+{
+    /**
+     * Executes the merge.
+     * The return value is used directly in the exit() call outside this class.
+     *
+     * @param array $arguments
+     * @return int
+     */
+    public function execute(array $arguments): int
+    {
+        if (count($arguments) < 2) {
+            echo 'Usage: mergeJunitReports.php <targetReport> [<label>=]<sourceReport> [[<label>=]<sourceReport> ...]' . chr(10);
+            return 1;
+        }
+        $target = array_shift($arguments);
+
+        $merged = new \DOMDocument('1.0', 'UTF-8');
+        $merged->formatOutput = true;
+        $root = $merged->appendChild($merged->createElement('testsuites'));
+        $result = 0;
+        foreach ($arguments as $source) {
+            $label = '';
+            if (strpos($source, '=') !== false) {
+                [$label, $source] = explode('=', $source, 2);
+            }
+            $report = new \DOMDocument();
+            if (!is_file($source) || !@$report->load($source)) {
+                // A worker died without writing its report, the job must fail
+                echo 'Could not read report ' . $source . chr(10);
+                $result = 1;
+                continue;
+            }
+            foreach ($report->documentElement->childNodes as $testSuite) {
+                if ($testSuite instanceof \DOMElement && $testSuite->nodeName === 'testsuite') {
+                    $testSuite = $merged->importNode($testSuite, true);
+                    if ($label !== '') {
+                        $this->prefixNames($testSuite, $label);
+                    }
+                    $root->appendChild($testSuite);
+                }
+            }
+        }
+        $merged->save($target);
+        return $result;
+    }
+
+    /**
+     * Prefix the names of a test suite, its nested test suites and the
+     * classes of its test cases with given label
+     *
+     * @param \DOMElement $testSuite
+     * @param string $label
+     */
+    private function prefixNames(\DOMElement $testSuite, string $label): void
+    {
+        $testSuite->setAttribute('name', $label . ' ' . $testSuite->getAttribute('name'));
+        foreach ($testSuite->getElementsByTagName('testsuite') as $nestedTestSuite) {
+            $nestedTestSuite->setAttribute('name', $label . ' ' . $nestedTestSuite->getAttribute('name'));
+        }
+        foreach ($testSuite->getElementsByTagName('testcase') as $testCase) {
+            foreach (['class', 'classname'] as $attribute) {
+                if ($testCase->hasAttribute($attribute)) {
+                    $testCase->setAttribute($attribute, $label . '.' . $testCase->getAttribute($attribute));
+                }
+            }
+        }
+    }
+}
+
+$merger = new mergeJunitReports();
+exit($merger->execute(array_slice($argv, 1)));
@@ -0,0 +1,51 @@
+#!/bin/bash
+
+#########################
+#
+# Run php -l on all php files in parallel.
+#
+# Files are handed to one worker per cpu core in batches, each worker
+# lints its batch in a loop. php -l can lint only one file per process.
+#
+# If a cache file is given, files whose content hash is listed in it
+# are not linted again. After a clean run, the cache file is replaced
+# with the hashes of all current files. Keep one cache file per php
+# version, a file linting clean with one version may fail with another.
+#
+# Usage: phpLint.sh [cacheFile]
+#
+# This script expects to be run from the core root.
+#
+##########################
+
+CACHE_FILE=$1
+BATCH_SIZE=50
+WORKERS=$(nproc)
+WORK_DIR=$(mktemp -d)
+
+find . -name \*.php -type f -print0 | xargs -0 -r sha1sum > ${WORK_DIR}/hashes
+
+if [ -n "${CACHE_FILE}" ] && [ -f "${CACHE_FILE}" ]; then
+    # sha1sum prints the 40 character hash, two spaces and the file name
+    awk 'NR == FNR { known[$1] = 1; next } !($1 in known) { print substr($0, 43) }' "${CACHE_FILE}" ${WORK_DIR}/hashes > ${WORK_DIR}/files
+else
+    cut -c 43- ${WORK_DIR}/hashes > ${WORK_DIR}/files
+fi
+
+echo "Linting $(wc -l < ${WORK_DIR}/files) of $(wc -l < ${WORK_DIR}/hashes) files with ${WORKERS} workers"
+
+tr '\n' '\0' < ${WORK_DIR}/files | xargs -0 -r -n ${BATCH_SIZE} -P ${WORKERS} bash -c '
+    RESULT=0
+    for FILE in "$@"; do
+        php -n -c /etc/php/cli-no-xdebug/php.ini -l "${FILE}" > /dev/null || RESULT=1
+    done
+    exit ${RESULT}
+' phpLint
+RESULT=$?
+
+if [ ${RESULT} -eq 0 ] && [ -n "${CACHE_FILE}" ]; then
+    cut -c 1-40 ${WORK_DIR}/hashes | sort -u > "${CACHE_FILE}.tmp" && mv "${CACHE_FILE}.tmp" "${CACHE_FILE}"
+fi
+
+rm -rf ${WORK_DIR}
+exit ${RESULT}
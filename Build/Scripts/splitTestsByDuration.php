@@ -0,0 +1,381 @@
+#!/usr/bin/env php
+<?php
+declare(strict_types = 1);
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+require __DIR__ . '/../../vendor/autoload.php';
+
+if (PHP_SAPI !== 'cli') {
+    die('Script must be called from command line.' . chr(10));
+}
+
+/**
+ * Core test split script:
+ *
+ * Split the test files of a suite into a given number of chunks and write
+ * a phpunit configuration per chunk, just like splitFunctionalTests.php of
+ * typo3/testing-framework does. For acceptance tests, a codeception group
+ * file listing the Cest files is written per chunk instead, like
+ * splitAcceptanceTests.php does, and the expected duration of each group
+ * is written to typo3temp/var/tests/AcceptanceGroups.txt.
+ *
+ * Instead of counting files, this script reads per test class durations
+ * from JUnit reports of previous runs and distributes the test files
+ * with a "longest processing time first" strategy: Files are sorted by
+ * duration and each file is added to the chunk with the lowest expected
+ * runtime so far. Files without history get the average duration of the
+ * known files. If there is no history at all, all files weigh the same
+ * and the result is a plain count based split.
+ *
+ * Usage: splitTestsByDuration.php <suite> <numberOfChunks> [--durations=<dir>] [-v]
+ */
+class splitTestsByDuration
+{
+    /**
+     * Test suites that can be split. The template and the resulting
+     * chunk configurations are located in the testing-framework build directory.
+     *
+     * @var array
+     */
+    private $suites = [
+        'functional' => [
+            'testDirectory' => 'Functional',
+            'testFilePattern' => '*Test.php',
+            'durationElement' => 'testsuite',
+            'template' => 'FunctionalTests.xml',
+            'chunkPrefix' => 'FunctionalTests-Job-',
+        ],
+        'unit' => [
+            'testDirectory' => 'Unit',
+            'testFilePattern' => '*Test.php',
+            'durationElement' => 'testsuite',
+            'template' => 'UnitTests.xml',
+            'chunkPrefix' => 'UnitTests-Job-',
+        ],
+        'unit-deprecated' => [
+            'testDirectory' => 'UnitDeprecated',
+            'testFilePattern' => '*Test.php',
+            'durationElement' => 'testsuite',
+            'template' => 'UnitTestsDeprecated.xml',
+            'chunkPrefix' => 'UnitTestsDeprecated-Job-',
+        ],
+        // Codeception reports have no class level suites, durations are summed up from test cases
+        'acceptance' => [
+            'testDirectory' => 'Acceptance/Backend',
+            'testFilePattern' => '*Cest.php',
+            // Base classes like AbstractElementsBasicCest contain no tests of their own
+            'excludePattern' => 'Abstract*',
+            'durationElement' => 'testcase',
+            // Group files matched by "groups" of typo3/sysext/core/Tests/Acceptance/Backend.suite.yml
+            'groupPrefix' => 'typo3/sysext/core/Tests/AcceptanceTests-Job-',
+            'summary' => 'typo3temp/var/tests/AcceptanceGroups.txt',
+        ],
+    ];
+
+    /**
+     * @var string
+     */
+    private $rootPath;
+
+    /**
+     * @var string
+     */
+    private $buildPath;
+
+    public function __construct()
+    {
+        $this->rootPath = realpath(__DIR__ . '/../../') . '/';
+        $this->buildPath = $this->rootPath . 'vendor/typo3/testing-framework/Resources/Core/Build/';
+    }
+
+    /**
+     * Executes the split.
+     * The return value is used directly in the exit() call outside this class.
+     *
+     * @param array $arguments
+     * @return int
+     */
+    public function execute(array $arguments): int
+    {
+        $output = new \Symfony\Component\Console\Output\ConsoleOutput();
+
+        $verbose = in_array('-v', $arguments, true);
+        $durationsPath = '';
+        $positional = [];
+        foreach ($arguments as $argument) {
+            if (strpos($argument, '--durations=') === 0) {
+                $durationsPath = substr($argument, strlen('--durations='));
+            } elseif ($argument !== '-v') {
+                $positional[] = $argument;
+            }
+        }
+        $suite = $positional[0] ?? '';
+        $numberOfChunks = (int)($positional[1] ?? 0);
+        if (!isset($this->suites[$suite]) || $numberOfChunks < 1) {
+            $output->writeln('Usage: splitTestsByDuration.php <' . implode('|', array_keys($this->suites)) . '> <numberOfChunks> [--durations=<dir>] [-v]');
+            return 1;
+        }
+        $suiteConfiguration = $this->suites[$suite];
+
+        $testFiles = $this->findTestFiles(
+            $suiteConfiguration['testDirectory'],
+            $suiteConfiguration['testFilePattern'],
+            $suiteConfiguration['excludePattern'] ?? ''
+        );
+        $durations = $durationsPath !== '' ? $this->readDurations($durationsPath, $suiteConfiguration['durationElement']) : [];
+        // Always reported, an empty or missing durations feed must be visible in the job log
+        if (empty($durations)) {
+            $output->writeln('Split mode: file count, no test durations found' . ($durationsPath !== '' ? ' in ' . $durationsPath : ''));
+        } else {
+            $output->writeln('Split mode: duration, ' . count($durations) . ' test files with duration in ' . $durationsPath);
+        }
+        $weights = $this->getWeights($testFiles, $durations);
+        $chunks = $this->distribute($weights, $numberOfChunks);
+
+        if (isset($suiteConfiguration['groupPrefix'])) {
+            $summary = '';
+            foreach ($chunks as $chunkNumber => $chunk) {
+                $this->writeGroupFile(
+                    $this->rootPath . $suiteConfiguration['groupPrefix'] . ($chunkNumber + 1),
+                    array_keys($chunk['files'])
+                );
+                $summary .= sprintf('%d %d %.1f', $chunkNumber + 1, count($chunk['files']), $chunk['duration']) . chr(10);
+            }
+            @mkdir(dirname($this->rootPath . $suiteConfiguration['summary']), 0777, true);
+            file_put_contents($this->rootPath . $suiteConfiguration['summary'], $summary);
+        } else {
+            $template = $this->buildPath . $suiteConfiguration['template'];
+            foreach ($chunks as $chunkNumber => $chunk) {
+                $this->writeChunkConfiguration(
+                    $template,
+                    $this->buildPath . $suiteConfiguration['chunkPrefix'] . ($chunkNumber + 1) . '.xml',
+                    array_keys($chunk['files'])
+                );
+            }
+        }
+
+        if ($verbose) {
+            $output->writeln(
+                'Split ' . count($testFiles) . ' test files into ' . $numberOfChunks . ' chunks, '
+                . count(array_intersect_key($durations, $weights)) . ' of them with known duration'
+            );
+            foreach ($chunks as $chunkNumber => $chunk) {
+                $output->writeln(sprintf(
+                    'Chunk %d: %d files, expected duration %.1f',
+                    $chunkNumber + 1,
+                    count($chunk['files']),
+                    $chunk['duration']
+                ));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds all test files of a suite, relative to the project root
+     *
+     * @param string $testDirectory
+     * @param string $testFilePattern
+     * @param string $excludePattern
+     * @return array
+     */
+    private function findTestFiles(string $testDirectory, string $testFilePattern, string $excludePattern): array
+    {
+        $finder = new \Symfony\Component\Finder\Finder();
+        $finder
+            ->files()
+            ->in($this->rootPath . 'typo3/sysext/*/Tests/' . $testDirectory . '/')
+            ->name($testFilePattern)
+            ->sortByName();
+        if ($excludePattern !== '') {
+            $finder->notName($excludePattern);
+        }
+        $testFiles = [];
+        foreach ($finder as $file) {
+            $testFiles[] = $this->getRelativePath($file->getPathname());
+        }
+        return $testFiles;
+    }
+
+    /**
+     * Reads the time of all class level test suites, or of all test cases,
+     * from all JUnit files found in given directory and sums it up per test
+     * file. If a file has been measured in more than one report, the mean
+     * value is used. Reports are read in sorted order and durations are rounded
+     * to milliseconds, so all chunk jobs get the same floats on any agent.
+     *
+     * @param string $durationsPath
+     * @param string $durationElement "testsuite" or "testcase"
+     * @return array Duration in seconds indexed by relative test file path
+     */
+    private function readDurations(string $durationsPath, string $durationElement): array
+    {
+        if (!is_dir($durationsPath)) {
+            return [];
+        }
+        // Directory iteration order depends on the file system
+        $reports = [];
+        $iterator = new \RecursiveIteratorIterator(new \RecursiveDirectoryIterator($durationsPath, \FilesystemIterator::SKIP_DOTS));
+        foreach ($iterator as $report) {
+            if ($report->getExtension() === 'xml') {
+                $reports[] = $report->getPathname();
+            }
+        }
+        sort($reports, SORT_STRING);
+        $sums = [];
+        $counts = [];
+        foreach ($reports as $report) {
+            $reader = new \XMLReader();
+            if (!$reader->open($report)) {
+                continue;
+            }
+            $reportDurations = [];
+            // Stream the report, they can be huge
+            while (@$reader->read()) {
+                if ($reader->nodeType !== \XMLReader::ELEMENT || $reader->name !== $durationElement) {
+                    continue;
+                }
+                // Data provider suites have no file attribute, class level suites and test cases have
+                $file = $reader->getAttribute('file');
+                $time = $reader->getAttribute('time');
+                if ($file === null || $time === null) {
+                    continue;
+                }
+                $relativePath = $this->getRelativePath($file);
+                $reportDurations[$relativePath] = ($reportDurations[$relativePath] ?? 0.0) + (float)$time;
+            }
+            $reader->close();
+            foreach ($reportDurations as $relativePath => $duration) {
+                $sums[$relativePath] = ($sums[$relativePath] ?? 0.0) + $duration;
+                $counts[$relativePath] = ($counts[$relativePath] ?? 0) + 1;
+            }
+        }
+        $durations = [];
+        foreach ($sums as $relativePath => $sum) {
+            $durations[$relativePath] = round($sum / $counts[$relativePath], 3);
+        }
+        return $durations;
+    }
+
+    /**
+     * Weigh each test file with its known duration, or with the average
+     * duration if unknown. Without any history, each file weighs 1.
+     *
+     * @param array $testFiles
+     * @param array $durations
+     * @return array
+     */
+    private function getWeights(array $testFiles, array $durations): array
+    {
+        $knownDurations = array_intersect_key($durations, array_flip($testFiles));
+        $defaultWeight = empty($knownDurations) ? 1.0 : round(array_sum($knownDurations) / count($knownDurations), 3);
+        $weights = [];
+        foreach ($testFiles as $testFile) {
+            $weights[$testFile] = $knownDurations[$testFile] ?? $defaultWeight;
+        }
+        return $weights;
+    }
+
+    /**
+     * Longest processing time first: Sort by weight and add each file to the
+     * chunk with the lowest total. This is deterministic, all chunk jobs
+     * of a plan run calculate the same split from the same input.
+     *
+     * @param array $weights
+     * @param int $numberOfChunks
+     * @return array
+     */
+    private function distribute(array $weights, int $numberOfChunks): array
+    {
+        $files = array_keys($weights);
+        usort($files, function ($a, $b) use ($weights) {
+            if ($weights[$a] === $weights[$b]) {
+                return strcmp($a, $b);
+            }
+            return $weights[$a] < $weights[$b] ? 1 : -1;
+        });
+        $chunks = array_fill(0, $numberOfChunks, ['duration' => 0.0, 'files' => []]);
+        foreach ($files as $file) {
+            $lowest = 0;
+            for ($i = 1; $i < $numberOfChunks; $i++) {
+                if ($chunks[$i]['duration'] < $chunks[$lowest]['duration']) {
+                    $lowest = $i;
+                }
+            }
+            $chunks[$lowest]['duration'] += $weights[$file];
+            $chunks[$lowest]['files'][$file] = $weights[$file];
+        }
+        return $chunks;
+    }
+
+    /**
+     * Write a phpunit configuration based on the testing-framework template
+     * with the test suite directories replaced by the given files.
+     *
+     * @param string $template
+     * @param string $target
+     * @param array $files
+     */
+    private function writeChunkConfiguration(string $template, string $target, array $files)
+    {
+        $document = new \DOMDocument();
+        $document->preserveWhiteSpace = false;
+        $document->formatOutput = true;
+        $document->load($template);
+        $testSuite = $document->getElementsByTagName('testsuite')->item(0);
+        while ($testSuite->hasChildNodes()) {
+            $testSuite->removeChild($testSuite->firstChild);
+        }
+        // Paths in the configuration are relative to the testing-framework build directory
+        $pathToRoot = str_repeat('../', substr_count(substr($this->buildPath, strlen($this->rootPath)), '/'));
+        foreach ($files as $file) {
+            $testSuite->appendChild($document->createElement('file', $pathToRoot . $file));
+        }
+        $document->save($target);
+    }
+
+    /**
+     * Write a codeception group file with one test file per line. Codeception
+     * resolves the paths relative to its project directory, which is the
+     * directory of the group file.
+     *
+     * @param string $target
+     * @param array $files Relative to the project root
+     */
+    private function writeGroupFile(string $target, array $files)
+    {
+        $codeceptionDirectory = dirname(substr($target, strlen($this->rootPath))) . '/';
+        $lines = '';
+        foreach ($files as $file) {
+            $lines .= substr($file, strlen($codeceptionDirectory)) . chr(10);
+        }
+        file_put_contents($target, $lines);
+    }
+
+    /**
+     * Path relative to the project root. Absolute paths in JUnit reports
+     * differ between agents and jobs, everything up to typo3/sysext/ is cut.
+     *
+     * @param string $path
+     * @return string
+     */
+    private function getRelativePath(string $path): string
+    {
+        $position = strpos($path, 'typo3/sysext/');
+        return $position === false ? $path : substr($path, $position);
+    }
+}
+
+$splitter = new splitTestsByDuration();
+exit($splitter->execute(array_slice($argv, 1)));
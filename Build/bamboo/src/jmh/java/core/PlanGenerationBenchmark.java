@@ -0,0 +1,127 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atlassian.bamboo.specs.api.builders.plan.Plan;
+import com.atlassian.bamboo.specs.api.model.plan.PlanProperties;
+import com.atlassian.bamboo.specs.api.util.EntityPropertiesBuilders;
+
+/**
+ * Time and allocation of plan generation and offline validation.
+ *
+ * Each spec is measured with its real chunk counts (scale 1) and with
+ * all chunk counts multiplied by 10, a synthetic matrix of a plan that
+ * grew to some hundred jobs.
+ *
+ * Run 'mvn -Pbenchmark verify', allocation is reported by the gc profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanGenerationBenchmark {
+
+    @Param({"PreMerge", "Nightly", "Security"})
+    public String spec;
+
+    @Param({"1", "10"})
+    public int scale;
+
+    /**
+     * Plan of the selected spec for buildPlanProperties(), created once per
+     * trial outside of the measured iterations. A separate state, so the
+     * createPlan() benchmark does not pay for it.
+     */
+    @State(Scope.Thread)
+    public static class CreatedPlan {
+
+        private Plan plan;
+
+        @Setup(Level.Trial)
+        public void createPlan(PlanGenerationBenchmark benchmark) {
+            this.plan = benchmark.createPlanOfSpec();
+        }
+    }
+
+    /**
+     * createPlan() of the spec, a new spec instance is used for each
+     * plan just like the publishing main() methods do.
+     */
+    @Benchmark
+    public Plan createPlan() {
+        return this.createPlanOfSpec();
+    }
+
+    /**
+     * Offline validation as done by the spec tests and before publishing
+     */
+    @Benchmark
+    public PlanProperties buildPlanProperties(CreatedPlan createdPlan) {
+        return EntityPropertiesBuilders.build(createdPlan.plan);
+    }
+
+    /**
+     * @return Plan of the selected spec with scaled chunk counts
+     */
+    private Plan createPlanOfSpec() {
+        switch (this.spec) {
+            case "PreMerge":
+                PreMergeSpec preMergeSpec = new PreMergeSpec();
+                preMergeSpec.numberOfAcceptanceTestJobs *= this.scale;
+                preMergeSpec.numberOfFunctionalMysqlJobs *= this.scale;
+                preMergeSpec.numberOfFunctionalMssqlJobs *= this.scale;
+                preMergeSpec.numberOfFunctionalPgsqlJobs *= this.scale;
+                preMergeSpec.numberOfFunctionalSqliteJobs *= this.scale;
+                preMergeSpec.numberOfUnitRandomOrderJobs *= this.scale;
+                return preMergeSpec.createPlan();
+            case "Nightly":
+                NightlySpec nightlySpec = new NightlySpec();
+                nightlySpec.numberOfAcceptanceTestJobs *= this.scale;
+                nightlySpec.numberOfFunctionalMysqlJobs *= this.scale;
+                nightlySpec.numberOfFunctionalMssqlJobs *= this.scale;
+                nightlySpec.numberOfFunctionalPgsqlJobs *= this.scale;
+                nightlySpec.numberOfFunctionalSqliteJobs *= this.scale;
+                nightlySpec.numberOfUnitRandomOrderJobs *= this.scale;
+                return nightlySpec.createPlan();
+            case "Security":
+                SecuritySpec securitySpec = new SecuritySpec();
+                securitySpec.numberOfAcceptanceTestJobs *= this.scale;
+                securitySpec.numberOfFunctionalMysqlJobs *= this.scale;
+                securitySpec.numberOfFunctionalMssqlJobs *= this.scale;
+                securitySpec.numberOfFunctionalPgsqlJobs *= this.scale;
+                securitySpec.numberOfFunctionalSqliteJobs *= this.scale;
+                securitySpec.numberOfUnitRandomOrderJobs *= this.scale;
+                return securitySpec.createPlan();
+            default:
+                throw new IllegalArgumentException("Unknown spec " + this.spec);
+        }
+    }
+}
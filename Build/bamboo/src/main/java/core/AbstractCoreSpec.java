@@ -14,6 +14,10 @@ package core;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
 
 import com.atlassian.bamboo.specs.api.builders.BambooKey;
 import com.atlassian.bamboo.specs.api.builders.permission.PermissionType;
@@ -22,10 +26,14 @@ import com.atlassian.bamboo.specs.api.builders.permission.PlanPermissions;
 import com.atlassian.bamboo.specs.api.builders.plan.Job;
 import com.atlassian.bamboo.specs.api.builders.plan.PlanIdentifier;
 import com.atlassian.bamboo.specs.api.builders.plan.artifact.Artifact;
+import com.atlassian.bamboo.specs.api.builders.plan.artifact.ArtifactSubscription;
 import com.atlassian.bamboo.specs.api.builders.plan.configuration.AllOtherPluginsConfiguration;
 import com.atlassian.bamboo.specs.api.builders.plan.configuration.PluginConfiguration;
 import com.atlassian.bamboo.specs.api.builders.requirement.Requirement;
 import com.atlassian.bamboo.specs.api.builders.task.Task;
+import com.atlassian.bamboo.specs.api.model.plan.JobProperties;
+import com.atlassian.bamboo.specs.api.model.task.TaskProperties;
+import com.atlassian.bamboo.specs.api.util.EntityPropertiesBuilders;
 import com.atlassian.bamboo.specs.builders.task.CheckoutItem;
 import com.atlassian.bamboo.specs.builders.task.CommandTask;
 import com.atlassian.bamboo.specs.builders.task.NpmTask;
@@ -38,6 +46,12 @@ import com.atlassian.bamboo.specs.util.MapBuilder;
 
 /**
  * Abstract class with common methods of pre-merge and nightly plan
+ *
+ * Known gap: The task timings report of getJobTaskTimingsReport() runs in a
+ * trailing stage, and Bamboo 6.9 runs a stage only if all previous stages
+ * succeeded. Plan runs with a failed job have no report. Each job still
+ * publishes its "Task timings <job key>" artifact, these can be downloaded
+ * and aggregated with Build/Scripts/aggregateTaskTimings.php locally.
  */
 abstract public class AbstractCoreSpec {
 
@@ -49,6 +63,124 @@ abstract public class AbstractCoreSpec {
 
     protected String testingFrameworkBuildPath = "vendor/typo3/testing-framework/Resources/Core/Build/";
 
+    /**
+     * Split functional tests by durations of previous runs instead of by file count.
+     * Adds a job collecting the durations to the preparation stage.
+     */
+    protected boolean useDurationBasedFunctionalSplit = false;
+
+    /**
+     * Split backend acceptance tests into codeception groups by durations of
+     * previous runs instead of by file count, uses the same collecting job.
+     */
+    protected boolean useDurationBasedAcceptanceSplit = false;
+
+    /**
+     * Install TYPO3 for backend acceptance tests once in the early stage,
+     * acceptance jobs restore the instance and its database from the resulting
+     * snapshot instead of setting it up, see getJobAcceptanceTestSnapshot().
+     * The acceptance install jobs still test the installer.
+     */
+    protected boolean useAcceptanceSnapshot = false;
+
+    /**
+     * Clone and cherry pick once in the preparation stage, all later jobs unpack
+     * the resulting workspace instead, see getJobWorkspaceSnapshot().
+     */
+    protected boolean useWorkspaceSnapshot = true;
+
+    /**
+     * Resolve the typo3gmbh images to digests in each preparation job using them,
+     * later jobs use the digests of getJobWorkspaceSnapshot(). So all jobs after the
+     * preparation stage use the same images even if a tag is updated meanwhile.
+     * The composer and yarn artifacts record the image they were built on, jobs
+     * unpacking them fail if it differs from the image of the workspace snapshot.
+     * Jobs fail if the digests are not resolved. Needs useWorkspaceSnapshot, see
+     * getDockerImage().
+     */
+    protected boolean usePinnedDockerImages = true;
+    protected String[] dockerImageIdentifiers = {"PHP72", "PHP73", "JS"};
+
+    /**
+     * Compare test durations of each job with its previous runs,
+     * see getTaskDetectTestDurationRegressions(). In mode "fail" the job fails
+     * if more than testDurationRegressionBudget tests or suites became slower.
+     * The history is kept in a docker volume of the agent, or, if testDurationHistoryUrl
+     * is set, once per plan on a http server answering GET and PUT of <url>/<planKey>-<jobKey>.bin
+     */
+    protected boolean useTestDurationRegressionDetection = false;
+    protected String testDurationRegressionMode = "warn";
+    protected int testDurationRegressionBudget = 0;
+    protected String testDurationHistoryUrl = "";
+
+    /**
+     * Eviction limits of the agent local composer cache, see getScriptTaskComposerCache()
+     */
+    protected int composerCacheMaxAgeDays = 30;
+    protected int composerCacheMaxSizeMb = 2048;
+
+    /**
+     * Analyse the patch set in the early stage and skip main stage jobs
+     * of test suites that are not affected by the change.
+     */
+    protected boolean useChangeImpactAnalysis = false;
+
+    /**
+     * Skip main stage jobs whose inputs equal those of an earlier green run and
+     * restore the cached test report instead, see getJobResultCacheKeys().
+     * Results are kept in a docker volume of the agent, or, if resultCacheUrl is
+     * set, on a http server answering GET and PUT of <url>/<fingerprint>.tar.gz
+     */
+    protected boolean useResultCache = false;
+    protected String resultCacheUrl = "";
+    protected int resultCacheMaxEntries = 5000;
+
+    /**
+     * Number of parallel phpunit processes in unit test jobs, see getScriptTaskPhpunitUnit()
+     */
+    protected int numberOfUnitTestWorkers = 4;
+
+    /**
+     * Number of parallel phpunit processes in each functional test job, see
+     * getScriptTaskPhpunitFunctional(). Each worker uses two redis databases,
+     * redis has 16 by default, so no more than 8 workers.
+     */
+    protected int numberOfFunctionalTestWorkers = 1;
+
+    /**
+     * Number of parallel codeception processes in each backend acceptance job,
+     * each with its own web server, browser and database, see
+     * getScriptTaskCodeceptionBackendGroup()
+     */
+    protected int numberOfAcceptanceTestWorkers = 1;
+
+    /**
+     * Test durations and job setup times the plans compute their number of
+     * functional and acceptance chunks from, see getNumberOfChunks()
+     */
+    protected TimingProfile timingProfile = TimingProfile.load();
+
+    /**
+     * Database services started with their ephemeral profile: durability off and
+     * memory sized by databaseMemoryMb. See Build/testing-docker/bamboo/docker-compose.ephemeral-*.yml
+     */
+    protected String[] ephemeralDatabaseProfiles = {"mariadb10", "postgres10", "mssql2017cu9"};
+    protected int databaseMemoryMb = 2048;
+
+    /**
+     * Database services whose template database gets the core tables before the
+     * functional tests run, see getTaskCreateFunctionalDatabaseTemplate().
+     * Only DBMS creating new databases as copy of a template are supported, mariadb
+     * and sqlite databases of functional test cases are always created empty.
+     */
+    protected String[] functionalDatabaseTemplates = {"postgres10", "mssql2017cu9"};
+
+    /**
+     * Tasks, plugin configurations, requirements and bash bodies that are equal
+     * in many jobs, created once per spec instance. See getShared().
+     */
+    private HashMap<String, Object> sharedObjects = new HashMap<String, Object>();
+
     /**
      * Default permissions on core plans
      *
@@ -111,7 +243,7 @@ abstract public class AbstractCoreSpec {
      * @return
      */
     protected PluginConfiguration getDefaultJobPluginConfiguration() {
-        return new AllOtherPluginsConfiguration()
+        return this.getShared("getDefaultJobPluginConfiguration", () -> new AllOtherPluginsConfiguration()
             .configuration(new MapBuilder()
                 .put("repositoryDefiningWorkingDirectory", -1)
                 .put("custom", new MapBuilder()
@@ -131,7 +263,7 @@ abstract public class AbstractCoreSpec {
                     .build()
                 )
                 .build()
-            );
+            ));
     }
 
     /**
@@ -173,70 +305,80 @@ abstract public class AbstractCoreSpec {
     }
 
     /**
-     * Job composer validate
-     *
-     * @param String requirementIdentifier
-     * @param Boolean isSecurity
+     * Job publishing JUnit reports of previous functional and acceptance runs on
+     * this agent as shared artifact. All chunks of a plan run subscribe to this
+     * artifact to calculate the same duration based split.
      */
-    protected Job getJobComposerValidate(String requirementIdentifier, Boolean isSecurity) {
-        return new Job("Validate composer.json", new BambooKey("VC"))
-        .description("Validate composer.json before actual tests are executed")
-        .pluginConfigurations(this.getDefaultJobPluginConfiguration())
-        .tasks(
-            this.getTaskGitCloneRepository(),
-            this.getTaskGitCherryPick(isSecurity),
-            this.getTaskStopDanglingContainers(),
-            new ScriptTask()
-                .description("composer validate")
-                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                .inlineBody(
-                    this.getScriptTaskBashInlineBody() +
-                    this.getScriptTaskComposer(requirementIdentifier) +
-                    "composer validate"
-                )
-                .environmentVariables(this.composerRootVersionEnvironment)
-        )
-        .requirements(
-            this.getRequirementDocker10()
-        )
-        .cleanWorkingDirectory(true);
+    protected Job getJobCollectTestDurations() {
+        return new Job("Collect test durations", new BambooKey("CTD"))
+            .description("Collect JUnit reports of previous runs to split tests by duration")
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                new ScriptTask()
+                    .description("Copy test durations from agent volume")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "mkdir -p test-durations\n" +
+                        "docker run \\\n" +
+                        "    -u ${HOST_UID} \\\n" +
+                        "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+                        "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_test-durations:/test-durations \\\n" +
+                        "    --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
+                        "    --rm \\\n" +
+                        "    alpine:3.8 \\\n" +
+                        "    /bin/sh -c \"cp -R /test-durations/. ${PWD}/test-durations/\"\n" +
+                        "ls -R test-durations\n" +
+                        "exit 0\n"
+                    )
+            )
+            .artifacts(new Artifact()
+                .name("Test durations")
+                .copyPattern("**/*.xml")
+                .location("test-durations")
+                .shared(true)
+                // Empty on a cold agent, splits then fall back to file count
+                .required(false)
+            )
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
     }
 
-
     /**
-     * Job checking CGL of last git commit
+     * Job cloning core and cherry picking the patch set once per plan run. The
+     * workspace including .git is published as zstd compressed shared artifact
+     * together with the resulting commit hash, consumed by getTaskCheckoutWorkspace()
+     * and getTaskVerifyWorkspace().
      *
-     * @param String requirementIdentifier
      * @param Boolean isSecurity
      */
-    protected Job getJobCglCheckGitCommit(String requirementIdentifier, Boolean isSecurity) {
-        return new Job("Integration CGL", new BambooKey("CGLCHECK"))
-            .description("Check coding guidelines by executing Build/Scripts/cglFixMyCommit.sh script")
+    protected Job getJobWorkspaceSnapshot(Boolean isSecurity) {
+        return new Job("Workspace snapshot", new BambooKey("WSS"))
+            .description("Clone core, cherry pick patch set and publish the workspace")
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
                 this.getTaskGitCloneRepository(),
                 this.getTaskGitCherryPick(isSecurity),
-                this.getTaskStopDanglingContainers(),
-                this.getTaskComposerInstall(requirementIdentifier),
+                this.getTaskResolveDockerImages(),
                 new ScriptTask()
-                    .description("Execute cgl check script")
+                    .description("Archive workspace")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
-                        "function cglFixMyCommit() {\n" +
-                        "    docker run \\\n" +
-                        "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/cglFixMyCommit.sh $*\"\n" +
-                        "}\n" +
-                        "\n" +
-                        "cglFixMyCommit dryrun\n"
+                        "git rev-parse HEAD > workspace-commit\n" +
+                        "echo \"Workspace commit $(cat workspace-commit)\"\n" +
+                        "tar --exclude=./workspace.tar.zst --exclude=./task-timings -I \"zstd -T0 -3\" -cf workspace.tar.zst . || exit 1\n" +
+                        "ls -l workspace.tar.zst"
                     )
             )
+            .artifacts(new Artifact()
+                .name("Workspace snapshot")
+                .copyPattern("workspace.tar.zst")
+                .shared(true)
+                .required(true)
+            )
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -244,42 +386,42 @@ abstract public class AbstractCoreSpec {
     }
 
     /**
-     * Job checking CGL of all core php files
+     * Job resolving composer dependencies once per plan run. The installed
+     * vendor/, bin/ and typo3conf/ext/ directories are published as compressed
+     * shared artifact, consumed by getTaskComposerArtifact().
      *
-     * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobCglCheckFullCore(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
-        return new Job("Integration CGL " + stageNumber, new BambooKey("CGLCHECK" + stageNumber))
-            .description("Check coding guidelines of full core")
+    protected Job getJobComposerArtifact(String requirementIdentifier, String composerMode, Boolean isSecurity) {
+        String archiveName = this.getComposerArtifactArchiveName(requirementIdentifier, composerMode);
+        return new Job("Composer " + composerMode + " " + requirementIdentifier, new BambooKey("C" + composerMode.toUpperCase() + requirementIdentifier))
+            .description("Run composer " + composerMode + " and publish dependencies " + requirementIdentifier)
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
                 this.getTaskGitCloneRepository(),
                 this.getTaskGitCherryPick(isSecurity),
+                this.getTaskResolveDockerImages(),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
+                this.getTaskPullDockerImages(),
+                this.getTaskComposer(requirementIdentifier, composerMode),
                 new ScriptTask()
-                    .description("Execute cgl check")
+                    .description("Archive composer dependencies")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
-                        "function phpCsFixer() {\n" +
-                        "    docker run \\\n" +
-                        "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/php-cs-fixer $*\"\n" +
-                        "}\n" +
-                        "\n" +
-                        "phpCsFixer fix -v --dry-run --path-mode intersection --config=Build/.php_cs typo3/\n" +
-                        "exit $?"
+                        "echo " + this.getDockerImage(requirementIdentifier) + " > composer-image.txt\n" +
+                        "tar -czf " + archiveName + " vendor bin typo3conf/ext composer-image.txt || exit 1\n" +
+                        "ls -l " + archiveName
                     )
             )
+            .artifacts(new Artifact()
+                .name(this.getComposerArtifactName(requirementIdentifier, composerMode))
+                .copyPattern(archiveName)
+                .shared(true)
+                .required(true)
+            )
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -287,57 +429,74 @@ abstract public class AbstractCoreSpec {
     }
 
     /**
-     * Job acceptance test installs system on mariadb
+     * Job running yarn install in Build/ once per plan run, the node_modules
+     * directory is published as compressed shared artifact and consumed by
+     * getTaskYarnArtifact().
+     *
+     * The archive is cached in an agent local volume, keyed by the hash of
+     * Build/yarn.lock and the image. If both did not change, node_modules is not
+     * installed at all, otherwise yarn install uses a persistent package cache.
+     * The image is published with the archive, see getScriptTaskVerifyArtifactImage().
      *
-     * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
      * @param Boolean isSecurity
      */
-    protected Job getJobAcceptanceTestInstallMysql(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
-        return new Job("Accept inst my " + stageNumber + " " + requirementIdentifier, new BambooKey("ACINSTMY" +stageNumber + requirementIdentifier))
-            .description("Install TYPO3 on mariadb and load introduction package " + requirementIdentifier)
+    protected Job getJobYarnArtifact(String requirementIdentifier, Boolean isSecurity) {
+        String cacheVolume = "${BAMBOO_COMPOSE_PROJECT_NAME}_yarn-cache";
+        return new Job("Yarn install", new BambooKey("YARN"))
+            .description("Run yarn install in Build/ and publish node_modules")
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
                 this.getTaskGitCloneRepository(),
                 this.getTaskGitCherryPick(isSecurity),
+                this.getTaskResolveDockerImages(),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
-                this.getTaskPrepareAcceptanceTest(),
-                this.getTaskDockerDependenciesAcceptanceInstallMariadb10(),
+                this.getTaskPullDockerImages(),
                 new ScriptTask()
-                    .description("Install TYPO3 on mariadb 10")
+                    .description("yarn install in Build/ dir or fetch node_modules from agent cache")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
-                        "function codecept() {\n" +
+                        "function yarnCacheInit() {\n" +
+                        "    docker volume create " + cacheVolume + " > /dev/null\n" +
+                        "    docker run --rm -v " + cacheVolume + ":/srv/yarn-cache/ alpine:3.8 \\\n" +
+                        "        sh -c \"mkdir -p /srv/yarn-cache/packages /srv/yarn-cache/modules && chown -R ${HOST_UID} /srv/yarn-cache\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "function yarnInstall() {\n" +
                         "    docker run \\\n" +
                         "        -u ${HOST_UID} \\\n" +
                         "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
                         "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        -e typo3InstallMysqlDatabaseHost=${typo3InstallMysqlDatabaseHost} \\\n" +
-                        "        -e typo3InstallMysqlDatabaseName=${typo3InstallMysqlDatabaseName} \\\n" +
-                        "        -e typo3InstallMysqlDatabaseUsername=${typo3InstallMysqlDatabaseUsername} \\\n" +
-                        "        -e typo3InstallMysqlDatabasePassword=${typo3InstallMysqlDatabasePassword} \\\n" +
+                        "        -v " + cacheVolume + ":/srv/yarn-cache/ \\\n" +
+                        "        -e HOME=${HOME} \\\n" +
                         "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
                         "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}; ./bin/codecept $*\"\n" +
+                        "        " + this.getDockerImage(requirementIdentifier) + " \\\n" +
+                        "        bin/bash -c \"cd ${PWD}/Build; " +
+                            "ARCHIVE=/srv/yarn-cache/modules/node_modules-$1.tar.gz; " +
+                            "if [ -f \\$ARCHIVE ]; then " +
+                                "echo node_modules cache hit for yarn.lock and image $1; " +
+                            "else " +
+                                "echo node_modules cache miss for yarn.lock and image $1; " +
+                                "yarn install --cache-folder /srv/yarn-cache/packages || exit 1; " +
+                                "tar -czf \\$ARCHIVE.tmp node_modules && mv \\$ARCHIVE.tmp \\$ARCHIVE || exit 1; " +
+                            "fi; " +
+                            "cp \\$ARCHIVE ../node-modules.tar.gz || exit 1; " +
+                            "touch \\$ARCHIVE; " +
+                            "ls -1t /srv/yarn-cache/modules/*.tar.gz | tail -n +6 | xargs -r rm -f\"\n" +
                         "}\n" +
                         "\n" +
-                        "codecept run Install -d -c typo3/sysext/core/Tests/codeception.yml --env=mysql --xml reports.xml --html reports.html\n"
+                        "yarnCacheInit\n" +
+                        "echo " + this.getDockerImage(requirementIdentifier) + " > node-modules.image\n" +
+                        "yarnInstall $(cat Build/yarn.lock node-modules.image | sha1sum | cut -c1-40)"
                     )
             )
-            .finalTasks(
-                this.getTaskStopDockerDependencies(),
-                new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
-                    .resultDirectories("typo3temp/var/tests/AcceptanceReports/reports.xml")
-            )
             .artifacts(new Artifact()
-                .name("Test Report")
-                .copyPattern("typo3temp/var/tests/AcceptanceReports/")
-                .shared(false)
+                .name("Node modules")
+                .copyPattern("node-modules.*")
+                .shared(true)
+                .required(true)
             )
             .requirements(
                 this.getRequirementDocker10()
@@ -346,191 +505,576 @@ abstract public class AbstractCoreSpec {
     }
 
     /**
-     * Job acceptance test installs system and introduction package on pgsql
+     * Task unpacking Build/node_modules created by getJobYarnArtifact()
+     * in the preparation stage. Jobs subscribe to the artifact with
+     * getArtifactSubscriptionYarn().
      *
-     * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
-     * @param Boolean isSecurity
      */
-    protected Job getJobAcceptanceTestInstallPgsql(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
-        return new Job("Accept inst pg " + stageNumber + " " + requirementIdentifier, new BambooKey("ACINSTPG" + stageNumber + requirementIdentifier))
-        .description("Install TYPO3 on pgsql and load introduction package " + requirementIdentifier)
-        .pluginConfigurations(this.getDefaultJobPluginConfiguration())
-        .tasks(
-            this.getTaskGitCloneRepository(),
-            this.getTaskGitCherryPick(isSecurity),
-            this.getTaskStopDanglingContainers(),
-            composerTask,
-            this.getTaskPrepareAcceptanceTest(),
-            this.getTaskDockerDependenciesAcceptanceInstallPostgres10(),
-            new ScriptTask()
-                .description("Install TYPO3 on postgresql 10")
+    protected Task getTaskYarnArtifact(String requirementIdentifier) {
+        return this.getShared("getTaskYarnArtifact:" + requirementIdentifier, () -> {
+            return new ScriptTask()
+                .description("Unpack node_modules in Build/ dir")
                 .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                 .inlineBody(
                     this.getScriptTaskBashInlineBody() +
-                    "function codecept() {\n" +
-                    "    docker run \\\n" +
-                    "        -u ${HOST_UID} \\\n" +
-                    "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                    "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                    "        -e typo3InstallPostgresqlDatabaseHost=${typo3InstallPostgresqlDatabaseHost} \\\n" +
-                    "        -e typo3InstallPostgresqlDatabaseName=${typo3InstallPostgresqlDatabaseName} \\\n" +
-                    "        -e typo3InstallPostgresqlDatabaseUsername=${typo3InstallPostgresqlDatabaseUsername} \\\n" +
-                    "        -e typo3InstallPostgresqlDatabasePassword=${typo3InstallPostgresqlDatabasePassword} \\\n" +
-                    "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                    "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                    "        --rm \\\n" +
-                    "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                    "        bin/bash -c \"cd ${PWD}; ./bin/codecept $*\"\n" +
-                    "}\n" +
-                    "\n" +
-                    "codecept run Install -d -c typo3/sysext/core/Tests/codeception.yml --env=postgresql --xml reports.xml --html reports.html\n"
-                )
-        )
-        .finalTasks(
-            this.getTaskStopDockerDependencies(),
-            new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
-                .resultDirectories("typo3temp/var/tests/AcceptanceReports/reports.xml")
-        )
-        .artifacts(new Artifact()
-            .name("Test Report")
-            .copyPattern("typo3temp/var/tests/AcceptanceReports/")
-            .shared(false)
-        )
-        .requirements(
-            this.getRequirementDocker10()
-        )
-        .cleanWorkingDirectory(true);
+                    "tar -xzf node-modules.tar.gz -C Build || exit 1\n" +
+                    "rm node-modules.tar.gz\n" +
+                    this.getScriptTaskVerifyArtifactImage(requirementIdentifier, "node-modules.image")
+                );
+        });
     }
 
     /**
-     * Job acceptance test installs system and introduction package on sqlite
+     * Job finding test suites affected by the cherry picked patch set.
+     * Writes a marker for each given job of an unaffected suite to the
+     * shared artifact "Change analysis", jobs subscribing to it end their
+     * script tasks early, see getScriptTaskSkipUnaffected().
      *
-     * @param int stageNumber
+     * @param ArrayList<Job> jobs
      * @param String requirementIdentifier
-     * @param Task composerTask
      * @param Boolean isSecurity
      */
-    protected Job getJobAcceptanceTestInstallSqlite(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
-        return new Job("Accept inst sq " + stageNumber + " " + requirementIdentifier, new BambooKey("ACINSTSQ" + stageNumber + requirementIdentifier))
-        .description("Install TYPO3 on sqlite and load introduction package " + requirementIdentifier)
-        .pluginConfigurations(this.getDefaultJobPluginConfiguration())
-        .tasks(
-            this.getTaskGitCloneRepository(),
-            this.getTaskGitCherryPick(isSecurity),
-            this.getTaskStopDanglingContainers(),
-            composerTask,
-            this.getTaskPrepareAcceptanceTest(),
-            this.getTaskDockerDependenciesAcceptanceInstallSqlite(),
-            new ScriptTask()
-                .description("Install TYPO3 on sqlite")
-                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                .inlineBody(
-                    this.getScriptTaskBashInlineBody() +
-                    "function codecept() {\n" +
-                    "    docker run \\\n" +
-                    "        -u ${HOST_UID} \\\n" +
-                    "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                    "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                    "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                    "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                    "        --rm \\\n" +
-                    "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                    "        bin/bash -c \"cd ${PWD}; ./bin/codecept $*\"\n" +
-                    "}\n" +
-                    "\n" +
-                    "codecept run Install -d -c typo3/sysext/core/Tests/codeception.yml --env=sqlite --xml reports.xml --html reports.html\n"
-                )
-        )
-        .finalTasks(
-            this.getTaskStopDockerDependencies(),
-            new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
-                .resultDirectories("typo3temp/var/tests/AcceptanceReports/reports.xml")
-        )
-        .artifacts(new Artifact()
-            .name("Test Report")
-            .copyPattern("typo3temp/var/tests/AcceptanceReports/")
-            .shared(false)
-        )
-        .requirements(
-            this.getRequirementDocker10()
-        )
-        .cleanWorkingDirectory(true);
+    protected Job getJobChangeImpactAnalysis(ArrayList<Job> jobs, String requirementIdentifier, Boolean isSecurity) {
+        String jobSuites = "";
+        for (Job job : jobs) {
+            String suite = this.getChangeImpactSuite(job);
+            if (suite != null) {
+                jobSuites = jobSuites + " " + EntityPropertiesBuilders.build(job).getKey().getKey() + ":" + suite;
+            }
+        }
+        return new Job("Change impact analysis", new BambooKey("CIA"))
+            .description("Find test suites affected by the patch set")
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
+                this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                new ScriptTask()
+                    .description("Analyse change impact")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function analyzeChangeImpact() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        -e HOME=${HOME} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini Build/Scripts/analyzeChangeImpact.php $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "touch changed-files.txt\n" +
+                        "if [[ \"${bamboo.changeUrl}\" ]]; then\n" +
+                        "    git diff --name-only HEAD~1 HEAD > changed-files.txt\n" +
+                        "fi\n" +
+                        "cat changed-files.txt\n" +
+                        "\n" +
+                        "analyzeChangeImpact changed-files.txt change-analysis" + jobSuites
+                    )
+            )
+            .artifacts(new Artifact()
+                .name("Change analysis")
+                .copyPattern("**/*")
+                .location("change-analysis")
+                .shared(true)
+                .required(true)
+            )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
     }
 
     /**
-     * Jobs for mysql based acceptance tests
+     * Test suite of a job as known to Build/Scripts/analyzeChangeImpact.php,
+     * derived from the job key. Jobs without suite, like integration checks,
+     * are never skipped.
      *
-     * @param int stageNumber
-     * @param int numberOfChunks
-     * @param String requirementIdentifier
-     * @param Task composerTask
-     * @param Boolean isSecurity
+     * @param Job job
+     * @return String Suite name or null
      */
-    protected ArrayList<Job> getJobsAcceptanceTestsBackendMysql(int stageNumber, int numberOfChunks, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
-        ArrayList<Job> jobs = new ArrayList<Job>();
+    protected String getChangeImpactSuite(Job job) {
+        String key = EntityPropertiesBuilders.build(job).getKey().getKey();
+        if (key.startsWith("ACINST") || key.startsWith("ACMY")) {
+            return "acceptance";
+        }
+        if (key.startsWith("FMY") || key.startsWith("FMS") || key.startsWith("FPG") || key.startsWith("FSL")) {
+            return "functional";
+        }
+        if (key.startsWith("UT")) {
+            return "unit";
+        }
+        if (key.startsWith("JSUT")) {
+            return "javascript";
+        }
+        if (key.equals("LSTS")) {
+            return "lint-frontend";
+        }
+        if (key.startsWith("LPHP")) {
+            return "lint-php";
+        }
+        return null;
+    }
 
-        for (int i=1; i<=numberOfChunks; i++) {
-            String formattedI = "" + i;
-            if (i < 10) {
-                formattedI = "0" + i;
+    /**
+     * Subscription to the artifact created by getJobChangeImpactAnalysis()
+     */
+    protected ArtifactSubscription getArtifactSubscriptionChangeImpact() {
+        return this.getShared("getArtifactSubscriptionChangeImpact", () -> new ArtifactSubscription()
+            .artifact("Change analysis")
+            .destination("change-analysis"));
+    }
+
+    /**
+     * Job writing the definition fingerprint of each given cacheable job to the
+     * shared artifact "Result cache keys". The fingerprint is calculated from
+     * the job properties, so it must be called before the result cache
+     * subscription and store task are added to the jobs.
+     * Jobs look up their result in getTaskStartRunner(), see getScriptTaskResultCacheLookup().
+     *
+     * @param ArrayList<Job> jobs
+     */
+    protected Job getJobResultCacheKeys(ArrayList<Job> jobs) {
+        String definitions = "";
+        for (Job job : jobs) {
+            if (this.isResultCacheable(job)) {
+                JobProperties jobProperties = EntityPropertiesBuilders.build(job);
+                definitions = definitions +
+                    "echo " + SpecFingerprint.sha256(SpecFingerprint.canonical(jobProperties)) + " > result-cache/definition-" + jobProperties.getKey().getKey() + "\n";
             }
-            jobs.add(new Job("Accept my " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("ACMY" + stageNumber + requirementIdentifier + formattedI))
-                .description("Run acceptance tests" + requirementIdentifier)
-                .pluginConfigurations(this.getDefaultJobPluginConfiguration())
-                .tasks(
-                    this.getTaskGitCloneRepository(),
-                    this.getTaskGitCherryPick(isSecurity),
-                    this.getTaskStopDanglingContainers(),
-                    composerTask,
-                    this.getTaskPrepareAcceptanceTest(),
-                    this.getTaskDockerDependenciesAcceptanceBackendMariadb10(),
-                    new ScriptTask()
-                        .description("Split acceptance tests")
-                        .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                        .inlineBody(
-                            this.getScriptTaskBashInlineBody() +
-                            "function splitAcceptanceTests() {\n" +
-                            "    docker run \\\n" +
-                            "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                            "        bin/bash -c \"cd ${PWD}; ./" + this.testingFrameworkBuildPath + "Scripts/splitAcceptanceTests.php $*\"\n" +
-                            "}\n" +
-                            "\n" +
-                            "splitAcceptanceTests " + numberOfChunks + " -v"
-                        ),
-                    new ScriptTask()
-                        .description("Execute codeception acceptance suite group " + formattedI)
-                        .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                        .inlineBody(
-                            this.getScriptTaskBashInlineBody() +
-                            "function codecept() {\n" +
-                            "    docker run \\\n" +
-                            "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                            "        -e typo3DatabaseName=func_test \\\n" +
-                            "        -e typo3DatabaseUsername=root \\\n" +
-                            "        -e typo3DatabasePassword=funcp  \\\n" +
-                            "        -e typo3DatabaseHost=mariadb10  \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                            "        bin/bash -c \"cd ${PWD}; ./bin/codecept $*\"\n" +
-                            "}\n" +
-                            "\n" +
-                            "codecept run Backend -d -g AcceptanceTests-Job-" + i + " -c typo3/sysext/core/Tests/codeception.yml --xml reports.xml --html reports.html\n"
-                        )
-                )
-                .finalTasks(
-                    this.getTaskStopDockerDependencies(),
-                    new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
+        }
+        return new Job("Result cache keys", new BambooKey("RCK"))
+            .description("Fingerprint job definitions for the result cache")
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                new ScriptTask()
+                    .description("Write job definition fingerprints")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "mkdir -p result-cache\n" +
+                        definitions
+                    )
+            )
+            .artifacts(new Artifact()
+                .name("Result cache keys")
+                .copyPattern("definition-*")
+                .location("result-cache")
+                .shared(true)
+                .required(true)
+            )
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
+    }
+
+    /**
+     * Jobs with a test suite and a runner container can use the result cache.
+     * php lint jobs have their own cache, see getJobLintPhp().
+     *
+     * @param Job job
+     */
+    protected boolean isResultCacheable(Job job) {
+        String suite = this.getChangeImpactSuite(job);
+        return suite != null && !suite.equals("lint-php");
+    }
+
+    /**
+     * Subscription to the artifact created by getJobResultCacheKeys()
+     */
+    protected ArtifactSubscription getArtifactSubscriptionResultCache() {
+        return this.getShared("getArtifactSubscriptionResultCache", () -> new ArtifactSubscription()
+            .artifact("Result cache keys")
+            .destination("result-cache"));
+    }
+
+    /**
+     * Last regular task of cacheable jobs: It only runs if all tests were green
+     * and stores the test reports under the fingerprint calculated by the lookup.
+     * Cache errors never fail the job.
+     */
+    protected Task getTaskResultCacheStore() {
+        return this.getShared("getTaskResultCacheStore", () -> new ScriptTask()
+            .description("Store green result in result cache")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                this.getScriptTaskResultCacheFunctions() +
+                "if [ ! -f result-cache/fingerprint ]; then\n" +
+                "    exit 0\n" +
+                "fi\n" +
+                "shopt -s nullglob\n" +
+                "for REPORT in test-reports/phpunit.xml typo3temp/var/tests/AcceptanceReports/reports.xml typo3temp/var/tests/*.xml; do\n" +
+                "    [ -f ${REPORT} ] && echo ${REPORT}\n" +
+                "done > result-cache/reports.txt\n" +
+                "tar -czf result-cache/result.tar.gz -T result-cache/reports.txt || exit 0\n" +
+                "resultCachePut $(cat result-cache/fingerprint) result-cache/result.tar.gz\n" +
+                "exit 0\n"
+            ));
+    }
+
+    /**
+     * Bash lines calculating the result cache fingerprint of this job after the
+     * runner container has been started: The git tree after cherry pick,
+     * composer.lock, the runner image id and the job definition from
+     * getJobResultCacheKeys(). Jobs splitting their tests by duration add the
+     * test durations they split by, the files of a chunk depend on them. On a
+     * hit the runner is removed again and the following tasks end early, see
+     * getScriptTaskSkipCachedResult().
+     */
+    protected String getScriptTaskResultCacheLookup() {
+        return
+            this.getScriptTaskResultCacheFunctions() +
+            "if [ -f result-cache/definition-${bamboo.shortJobKey} ]; then\n" +
+            "    echo \"tree $(git rev-parse HEAD^{tree})\" > result-cache/inputs\n" +
+            "    echo \"composer.lock $(sha1sum composer.lock | cut -c 1-40)\" >> result-cache/inputs\n" +
+            "    echo \"image $(docker inspect --format '{{.Image}}' ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner)\" >> result-cache/inputs\n" +
+            "    echo \"job $(cat result-cache/definition-${bamboo.shortJobKey})\" >> result-cache/inputs\n" +
+            "    if [ -d test-durations ]; then\n" +
+            "        echo \"test-durations $(find test-durations -type f -name '*.xml' | LC_ALL=C sort | xargs -r sha1sum | sha1sum | cut -c 1-40)\" >> result-cache/inputs\n" +
+            "    fi\n" +
+            "    cat result-cache/inputs\n" +
+            "    sha256sum result-cache/inputs | cut -c 1-64 > result-cache/fingerprint\n" +
+            "    resultCacheGet $(cat result-cache/fingerprint) result-cache/hit.tar.gz\n" +
+            "    if [ -s result-cache/hit.tar.gz ]; then\n" +
+            "        echo \"Result cache hit $(cat result-cache/fingerprint)\"\n" +
+            "        docker rm -f ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner\n" +
+            "        touch result-cache/hit\n" +
+            "    fi\n" +
+            "fi\n";
+    }
+
+    /**
+     * Bash functions resultCacheGet <fingerprint> <file> and resultCachePut <fingerprint> <file>.
+     * The agent local store keeps the resultCacheMaxEntries most recently used results.
+     */
+    protected String getScriptTaskResultCacheFunctions() {
+        if (!this.resultCacheUrl.isEmpty()) {
+            return
+                "function resultCacheGet() {\n" +
+                "    curl -fsS -o $2 " + this.resultCacheUrl + "/$1.tar.gz || rm -f $2\n" +
+                "}\n" +
+                "\n" +
+                "function resultCachePut() {\n" +
+                "    curl -fsS -T $2 " + this.resultCacheUrl + "/$1.tar.gz\n" +
+                "}\n" +
+                "\n";
+        }
+        String cacheVolume = "${BAMBOO_COMPOSE_PROJECT_NAME}_result-cache";
+        String dockerRun =
+            "    docker run \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+            "        -v " + cacheVolume + ":/srv/result-cache/ \\\n" +
+            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
+            "        --rm \\\n" +
+            "        alpine:3.8 \\\n";
+        return
+            "function resultCacheInit() {\n" +
+            "    docker volume create " + cacheVolume + " > /dev/null\n" +
+            "    docker run --rm -v " + cacheVolume + ":/srv/result-cache/ alpine:3.8 chown ${HOST_UID} /srv/result-cache\n" +
+            "}\n" +
+            "\n" +
+            "function resultCacheGet() {\n" +
+            "    resultCacheInit\n" +
+            dockerRun +
+            "        /bin/sh -c \"if [ -f /srv/result-cache/$1.tar.gz ]; then " +
+                "cp /srv/result-cache/$1.tar.gz ${PWD}/$2 && touch /srv/result-cache/$1.tar.gz; " +
+            "fi\"\n" +
+            "}\n" +
+            "\n" +
+            "function resultCachePut() {\n" +
+            "    resultCacheInit\n" +
+            dockerRun +
+            "        /bin/sh -c \"cp ${PWD}/$2 /srv/result-cache/$1.tar.gz.tmp && " +
+                "mv /srv/result-cache/$1.tar.gz.tmp /srv/result-cache/$1.tar.gz && " +
+                "ls -1t /srv/result-cache/*.tar.gz | tail -n +" + (this.resultCacheMaxEntries + 1) + " | xargs -r rm -f\"\n" +
+            "}\n" +
+            "\n";
+    }
+
+    /**
+     * Job composer validate
+     *
+     * @param String requirementIdentifier
+     * @param Boolean isSecurity
+     */
+    protected Job getJobComposerValidate(String requirementIdentifier, Boolean isSecurity) {
+        return new Job("Validate composer.json", new BambooKey("VC"))
+        .description("Validate composer.json before actual tests are executed")
+        .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+        .tasks(
+            this.getTaskCheckoutWorkspace(),
+            this.getTaskVerifyWorkspace(isSecurity),
+            this.getTaskStopDanglingContainers(),
+            this.getTaskPullDockerImages(),
+            new ScriptTask()
+                .description("composer validate")
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    this.getScriptTaskBashInlineBody() +
+                    this.getScriptTaskComposer(requirementIdentifier) +
+                    "composer validate"
+                )
+                .environmentVariables(this.composerRootVersionEnvironment)
+        )
+        .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+        .requirements(
+            this.getRequirementDocker10()
+        )
+        .cleanWorkingDirectory(true);
+    }
+
+
+    /**
+     * Job checking CGL of last git commit
+     *
+     * @param String requirementIdentifier
+     * @param Boolean isSecurity
+     */
+    protected Job getJobCglCheckGitCommit(String requirementIdentifier, Boolean isSecurity) {
+        return new Job("Integration CGL", new BambooKey("CGLCHECK"))
+            .description("Check coding guidelines by executing Build/Scripts/cglFixMyCommit.sh script")
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
+                this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, "Install"),
+                new ScriptTask()
+                    .description("Execute cgl check script")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function cglFixMyCommit() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/cglFixMyCommit.sh $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "cglFixMyCommit dryrun\n"
+                    )
+            )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, "Install"))
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
+    }
+
+    /**
+     * Job checking CGL of all core php files
+     *
+     * @param int stageNumber
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
+     * @param Boolean isSecurity
+     */
+    protected Job getJobCglCheckFullCore(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
+        return new Job("Integration CGL " + stageNumber, new BambooKey("CGLCHECK" + stageNumber))
+            .description("Check coding guidelines of full core")
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
+                this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                new ScriptTask()
+                    .description("Execute cgl check")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function phpCsFixer() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/php-cs-fixer $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "phpCsFixer fix -v --dry-run --path-mode intersection --config=Build/.php_cs typo3/\n" +
+                        "exit $?"
+                    )
+            )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
+    }
+
+    /**
+     * Job acceptance test installs system on mariadb, pgsql and sqlite. The three
+     * install scenarios run in parallel, each with its own web and chrome container,
+     * the mysql scenario in the job workspace and the others in workspace copies,
+     * see getScriptTaskStartAcceptanceWorkers(). Results are reported per database.
+     *
+     * @param int stageNumber
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
+     * @param Boolean isSecurity
+     */
+    protected Job getJobAcceptanceTestInstall(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
+        String reportDirectory = "typo3temp/var/tests/AcceptanceReports";
+        return new Job("Accept inst " + stageNumber + " " + requirementIdentifier, new BambooKey("ACINST" + stageNumber + requirementIdentifier))
+            .description("Install TYPO3 on mariadb, pgsql and sqlite and load introduction package " + requirementIdentifier)
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
+                this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                this.getTaskPrepareAcceptanceTest(),
+                this.getTaskDockerDependenciesAcceptanceInstall(requirementIdentifier),
+                new ScriptTask()
+                    .description("Install TYPO3 on mariadb 10, postgresql 10 and sqlite")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function phpScript() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "function codecept() {\n" +
+                        "    DIRECTORY=$1\n" +
+                        "    shift\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        -e typo3InstallMysqlDatabaseHost=${typo3InstallMysqlDatabaseHost} \\\n" +
+                        "        -e typo3InstallMysqlDatabaseName=${typo3InstallMysqlDatabaseName} \\\n" +
+                        "        -e typo3InstallMysqlDatabaseUsername=${typo3InstallMysqlDatabaseUsername} \\\n" +
+                        "        -e typo3InstallMysqlDatabasePassword=${typo3InstallMysqlDatabasePassword} \\\n" +
+                        "        -e typo3InstallPostgresqlDatabaseHost=${typo3InstallPostgresqlDatabaseHost} \\\n" +
+                        "        -e typo3InstallPostgresqlDatabaseName=${typo3InstallPostgresqlDatabaseName} \\\n" +
+                        "        -e typo3InstallPostgresqlDatabaseUsername=${typo3InstallPostgresqlDatabaseUsername} \\\n" +
+                        "        -e typo3InstallPostgresqlDatabasePassword=${typo3InstallPostgresqlDatabasePassword} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}/${DIRECTORY}; ./bin/codecept $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        this.getScriptTaskStartAcceptanceWorkers(3, requirementIdentifier, "") +
+                        "\n" +
+                        "ENVIRONMENTS=(mysql postgresql sqlite)\n" +
+                        "mkdir -p " + reportDirectory + "\n" +
+                        "PIDS=()\n" +
+                        "for WORKER in 1 2 3; do\n" +
+                        "    ENVIRONMENT=${ENVIRONMENTS[$((WORKER - 1))]}\n" +
+                        "    DIRECTORY=typo3temp/var/tests/workers/w${WORKER}\n" +
+                        "    if [ ${WORKER} -eq 1 ]; then\n" +
+                        "        DIRECTORY=.\n" +
+                        "    fi\n" +
+                        "    codecept ${DIRECTORY} run Install -d -c typo3/sysext/core/Tests/codeception.yml --env=${ENVIRONMENT} --xml reports.xml --html reports.html > " + reportDirectory + "/install-${ENVIRONMENT}.log 2>&1 &\n" +
+                        "    PIDS+=($!)\n" +
+                        "done\n" +
+                        "EXIT_CODE=0\n" +
+                        "for WORKER in 1 2 3; do\n" +
+                        "    ENVIRONMENT=${ENVIRONMENTS[$((WORKER - 1))]}\n" +
+                        "    wait ${PIDS[$((WORKER - 1))]} || EXIT_CODE=1\n" +
+                        "    echo \"Install on ${ENVIRONMENT}:\"\n" +
+                        "    cat " + reportDirectory + "/install-${ENVIRONMENT}.log\n" +
+                        "done\n" +
+                        "\n" +
+                        "# Test names are prefixed with the database, the scenarios share them\n" +
+                        "mv " + reportDirectory + "/reports.xml " + reportDirectory + "/reports-mysql.xml\n" +
+                        "REPORTS=\"mysql=" + reportDirectory + "/reports-mysql.xml\"\n" +
+                        "for WORKER in 2 3; do\n" +
+                        "    ENVIRONMENT=${ENVIRONMENTS[$((WORKER - 1))]}\n" +
+                        "    # Html reports and screenshots of failed tests end up in the job artifact\n" +
+                        "    cp -R typo3temp/var/tests/workers/w${WORKER}/" + reportDirectory + " " + reportDirectory + "/${ENVIRONMENT}\n" +
+                        "    REPORTS=\"${REPORTS} ${ENVIRONMENT}=" + reportDirectory + "/${ENVIRONMENT}/reports.xml\"\n" +
+                        "done\n" +
+                        "phpScript Build/Scripts/mergeJunitReports.php " + reportDirectory + "/reports.xml ${REPORTS} || EXIT_CODE=1\n" +
+                        "exit ${EXIT_CODE}\n"
+                    )
+            )
+            .finalTasks(
+                this.getTaskStopRunner(),
+                this.getTaskStopDockerDependencies(),
+                this.getTaskStopAcceptanceWorkers(),
+                new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
+                    .resultDirectories(reportDirectory + "/reports.xml")
+            )
+            .artifacts(new Artifact()
+                .name("Test Report")
+                .copyPattern(reportDirectory + "/")
+                .shared(false)
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
+    }
+
+    /**
+     * Number of jobs a suite is split into, so each job runs about targetSeconds.
+     * Functional and acceptance jobs run numberOfFunctionalTestWorkers and
+     * numberOfAcceptanceTestWorkers chunks in parallel.
+     *
+     * @param String suite Suite of the timing profile, e.g. "functional-mysql"
+     * @param int targetSeconds
+     */
+    protected int getNumberOfChunks(String suite, int targetSeconds) {
+        int workers = suite.startsWith("functional-") ? this.numberOfFunctionalTestWorkers : this.numberOfAcceptanceTestWorkers;
+        return this.timingProfile.getNumberOfChunks(suite, targetSeconds, workers);
+    }
+
+    /**
+     * Jobs for mysql based acceptance tests
+     *
+     * @param int stageNumber
+     * @param int numberOfChunks
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
+     * @param Boolean isSecurity
+     */
+    protected ArrayList<Job> getJobsAcceptanceTestsBackendMysql(int stageNumber, int numberOfChunks, String requirementIdentifier, String composerMode, Boolean isSecurity) {
+        ArrayList<Job> jobs = new ArrayList<Job>();
+
+        for (int i=1; i<=numberOfChunks; i++) {
+            String formattedI = TimingProfile.formatChunk(i, numberOfChunks);
+            Job job = new Job("Accept my " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("ACMY" + stageNumber + requirementIdentifier + formattedI))
+                .description("Run acceptance tests" + requirementIdentifier)
+                .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+                .tasks(
+                    this.getTaskCheckoutWorkspace(),
+                    this.getTaskVerifyWorkspace(isSecurity),
+                    this.getTaskStopDanglingContainers(),
+                    this.getTaskPullDockerImages(),
+                    this.getTaskStartRunner(requirementIdentifier),
+                    this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                    this.getTaskPrepareAcceptanceTest(),
+                    this.getTaskDockerDependenciesAcceptanceBackendMariadb10(requirementIdentifier)
+                )
+                .finalTasks(
+                    this.getTaskStopRunner(),
+                    this.getTaskStopDockerDependencies(),
+                    new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                         .resultDirectories("typo3temp/var/tests/AcceptanceReports/reports.xml")
                 )
                 .artifacts(new Artifact()
@@ -538,79 +1082,482 @@ abstract public class AbstractCoreSpec {
                     .copyPattern("typo3temp/var/tests/AcceptanceReports/")
                     .shared(false)
                 )
+                .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+                .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
                 .requirements(
                     this.getRequirementDocker10()
                 )
-                .cleanWorkingDirectory(true)
+                .cleanWorkingDirectory(true);
+            if (this.useAcceptanceSnapshot) {
+                job
+                    .tasks(this.getTaskRestoreAcceptanceSnapshot())
+                    .artifactSubscriptions(this.getArtifactSubscriptionAcceptanceSnapshot());
+            }
+            job.tasks(
+                this.getTaskSplitAcceptanceTests(numberOfChunks * this.numberOfAcceptanceTestWorkers),
+                new ScriptTask()
+                    .description("Execute codeception acceptance suite group " + formattedI)
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function codecept() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        -e typo3DatabaseName=func_test \\\n" +
+                        "        -e typo3DatabaseUsername=root \\\n" +
+                        "        -e typo3DatabasePassword=funcp  \\\n" +
+                        "        -e typo3DatabaseHost=mariadb10  \\\n" +
+                        (this.useAcceptanceSnapshot ? "        -e typo3AcceptanceSnapshot=restored \\\n" : "") +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; ./bin/codecept $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        this.getScriptTaskCodeceptionBackendGroup(i, requirementIdentifier)
+                    )
             );
+            if (this.numberOfAcceptanceTestWorkers > 1) {
+                job.finalTasks(this.getTaskStopAcceptanceWorkers());
+            }
+            if (this.useDurationBasedAcceptanceSplit) {
+                job
+                    .artifactSubscriptions(this.getArtifactSubscriptionTestDurations())
+                    .finalTasks(this.getTaskStoreTestDurations("acceptance-mysql", "typo3temp/var/tests/AcceptanceReports/reports.xml"));
+            }
+            jobs.add(job);
         }
 
         return jobs;
     }
 
+    /**
+     * Task annotating the backend acceptance Cest files with codeception groups
+     * AcceptanceTests-Job-<n>, by durations of previous runs if enabled
+     *
+     * @param int numberOfChunks
+     */
+    protected Task getTaskSplitAcceptanceTests(int numberOfChunks) {
+        return this.getShared("getTaskSplitAcceptanceTests:" + numberOfChunks, () -> {
+            if (this.useDurationBasedAcceptanceSplit) {
+                return new ScriptTask()
+                    .description("Split acceptance tests by duration")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function splitTestsByDuration() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini ./Build/Scripts/splitTestsByDuration.php $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "splitTestsByDuration acceptance " + numberOfChunks + " --durations=test-durations/acceptance-mysql -v"
+                    );
+            }
+            return new ScriptTask()
+                .description("Split acceptance tests")
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    this.getScriptTaskBashInlineBody() +
+                    "function splitAcceptanceTests() {\n" +
+                    "    docker exec \\\n" +
+                    "        -u ${HOST_UID} \\\n" +
+                    "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                    "        bin/bash -c \"cd ${PWD}; ./" + this.testingFrameworkBuildPath + "Scripts/splitAcceptanceTests.php $*\"\n" +
+                    "}\n" +
+                    "\n" +
+                    "splitAcceptanceTests " + numberOfChunks + " -v"
+                );
+        });
+    }
+
+    /**
+     * Bash lines running one backend acceptance chunk, expects a codecept()
+     * function. With a duration based split, the expected duration of each
+     * group is reported next to the actual one from the JUnit report.
+     *
+     * With numberOfAcceptanceTestWorkers greater than one, the split task created
+     * that many groups per job and each of them is executed by its own codeception
+     * process in parallel. The first worker uses the job workspace and the web and
+     * chrome services of docker-compose. Every other worker runs in a hard linked
+     * copy of the workspace below typo3temp/var/tests/workers/, served by its own
+     * web container, with its own chrome container and its own database on the
+     * shared mariadb10, see getScriptTaskStartAcceptanceWorkers(). The worker reports
+     * are merged into the reports.xml of the job.
+     * With useAcceptanceSnapshot, each worker restores the snapshot into its copy.
+     *
+     * @param int chunk Number of the job, starting with 1
+     * @param String requirementIdentifier
+     */
+    protected String getScriptTaskCodeceptionBackendGroup(int chunk, String requirementIdentifier) {
+        String reportDirectory = "typo3temp/var/tests/AcceptanceReports";
+        String reportGroupDuration = !this.useDurationBasedAcceptanceSplit ? "" :
+            "function reportGroupDuration() {\n" +
+            "    EXPECTED=$(awk '$1 == '$1' { print $3 }' typo3temp/var/tests/AcceptanceGroups.txt 2>/dev/null)\n" +
+            "    ACTUAL=$(grep -o '<testcase [^>]*' $2 2>/dev/null | sed -n 's/.* time=\"\\([0-9.]*\\)\".*/\\1/p' | awk '{ sum += $1 } END { printf \"%.1f\", sum }')\n" +
+            "    echo \"Acceptance group $1: expected ${EXPECTED:-unknown} seconds, actual ${ACTUAL} seconds\"\n" +
+            "}\n" +
+            "\n";
+        if (this.numberOfAcceptanceTestWorkers <= 1) {
+            String codecept = "codecept run Backend -d -g AcceptanceTests-Job-" + chunk + " -c typo3/sysext/core/Tests/codeception.yml --xml reports.xml --html reports.html\n";
+            if (!this.useDurationBasedAcceptanceSplit) {
+                return codecept;
+            }
+            return
+                reportGroupDuration +
+                "EXIT_CODE=0\n" +
+                codecept.replace("\n", " || EXIT_CODE=$?\n") +
+                "reportGroupDuration " + chunk + " " + reportDirectory + "/reports.xml\n" +
+                "exit ${EXIT_CODE}\n";
+        }
+        int firstGroup = (chunk - 1) * this.numberOfAcceptanceTestWorkers;
+        return
+            reportGroupDuration +
+            (this.useAcceptanceSnapshot ? this.getScriptTaskRestoreAcceptanceSnapshot() : "") +
+            "function phpScript() {\n" +
+            "    docker exec \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini $*\"\n" +
+            "}\n" +
+            "\n" +
+            "function codeceptWorker() {\n" +
+            "    WORKER=$1\n" +
+            "    shift\n" +
+            "    docker exec \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        -e typo3DatabaseName=func_test_w${WORKER} \\\n" +
+            "        -e typo3DatabaseUsername=root \\\n" +
+            "        -e typo3DatabasePassword=funcp  \\\n" +
+            "        -e typo3DatabaseHost=mariadb10  \\\n" +
+            (this.useAcceptanceSnapshot ? "        -e typo3AcceptanceSnapshot=restored \\\n" : "") +
+            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+            "        bin/bash -c \"cd ${PWD}/typo3temp/var/tests/workers/w${WORKER}; ./bin/codecept $*\"\n" +
+            "}\n" +
+            "\n" +
+            this.getScriptTaskStartAcceptanceWorkers(
+                this.numberOfAcceptanceTestWorkers,
+                requirementIdentifier,
+                this.useAcceptanceSnapshot ? "restoreAcceptanceSnapshot ${WORKER_ROOT} func_test_w${WORKER} || exit 1\n" : ""
+            ) +
+            "\n" +
+            "mkdir -p " + reportDirectory + "\n" +
+            "PIDS=()\n" +
+            "for WORKER in $(seq 1 " + this.numberOfAcceptanceTestWorkers + "); do\n" +
+            "    GROUP=$((" + firstGroup + " + WORKER))\n" +
+            "    echo \"Worker ${WORKER}: group AcceptanceTests-Job-${GROUP}\"\n" +
+            "    if [ ${WORKER} -eq 1 ]; then\n" +
+            "        codecept run Backend -d -g AcceptanceTests-Job-${GROUP} -c typo3/sysext/core/Tests/codeception.yml --xml reports.xml --html reports.html > " + reportDirectory + "/worker-1.log 2>&1 &\n" +
+            "    else\n" +
+            "        codeceptWorker ${WORKER} run Backend -d -g AcceptanceTests-Job-${GROUP} -c typo3/sysext/core/Tests/codeception.yml --xml reports.xml --html reports.html > " + reportDirectory + "/worker-${WORKER}.log 2>&1 &\n" +
+            "    fi\n" +
+            "    PIDS+=($!)\n" +
+            "done\n" +
+            "EXIT_CODE=0\n" +
+            "for WORKER in $(seq 1 " + this.numberOfAcceptanceTestWorkers + "); do\n" +
+            "    wait ${PIDS[$((WORKER - 1))]} || EXIT_CODE=1\n" +
+            "    cat " + reportDirectory + "/worker-${WORKER}.log\n" +
+            "done\n" +
+            "\n" +
+            "mv " + reportDirectory + "/reports.xml " + reportDirectory + "/reports-w1.xml\n" +
+            "REPORTS=\"" + reportDirectory + "/reports-w1.xml\"\n" +
+            "for WORKER in $(seq 2 " + this.numberOfAcceptanceTestWorkers + "); do\n" +
+            "    # Html reports and screenshots of failed tests end up in the job artifact\n" +
+            "    cp -R typo3temp/var/tests/workers/w${WORKER}/" + reportDirectory + " " + reportDirectory + "/w${WORKER}\n" +
+            "    REPORTS=\"${REPORTS} " + reportDirectory + "/w${WORKER}/reports.xml\"\n" +
+            "done\n" +
+            (this.useDurationBasedAcceptanceSplit ?
+                "for WORKER in $(seq 1 " + this.numberOfAcceptanceTestWorkers + "); do\n" +
+                "    reportGroupDuration $((" + firstGroup + " + WORKER)) $(echo ${REPORTS} | cut -d ' ' -f ${WORKER})\n" +
+                "done\n" : "") +
+            "phpScript Build/Scripts/mergeJunitReports.php " + reportDirectory + "/reports.xml ${REPORTS} || EXIT_CODE=1\n" +
+            "exit ${EXIT_CODE}\n";
+    }
+
+    /**
+     * Bash lines preparing additional acceptance workers 2 to numberOfWorkers.
+     * Each gets a hard linked copy of the workspace below typo3temp/var/tests/workers/,
+     * with the codeception suites pointing to its own web and chrome container.
+     * The workspace copy is in ${WORKER_ROOT} of given workerSetup lines. The web
+     * containers use the PHP image of the job, as the docker-compose web service.
+     *
+     * @param int numberOfWorkers
+     * @param String requirementIdentifier
+     * @param String workerSetup Bash lines executed for each worker before its containers start
+     */
+    protected String getScriptTaskStartAcceptanceWorkers(int numberOfWorkers, String requirementIdentifier, String workerSetup) {
+        return
+            "# Workspace copies, web and chrome of workers 2 and up\n" +
+            "for WORKER in $(seq 2 " + numberOfWorkers + "); do\n" +
+            "    WORKER_ROOT=typo3temp/var/tests/workers/w${WORKER}\n" +
+            "    mkdir -p ${WORKER_ROOT}\n" +
+            "    for ENTRY in $(ls -A | grep -v -x -e .git -e typo3temp); do\n" +
+            "        cp -al ${ENTRY} ${WORKER_ROOT}/\n" +
+            "    done\n" +
+            "    # sed -i replaces the files, the hard linked originals stay untouched\n" +
+            "    sed -i \\\n" +
+            "        -e \"s#http://web:8000/#http://web-w${WORKER}:8000/#\" \\\n" +
+            "        -e \"s#host: chrome\\$#host: chrome-w${WORKER}#\" \\\n" +
+            "        ${WORKER_ROOT}/typo3/sysext/core/Tests/Acceptance/Backend.suite.yml \\\n" +
+            "        ${WORKER_ROOT}/typo3/sysext/core/Tests/Acceptance/Install.suite.yml\n" +
+            workerSetup.replaceAll("(?m)^(?=.)", "    ") +
+            "    docker run \\\n" +
+            "        -d \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_worker_web_${WORKER} \\\n" +
+            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
+            "        --network-alias web-w${WORKER} \\\n" +
+            "        " + this.getDockerImage(requirementIdentifier) + " \\\n" +
+            "        php -n -c /etc/php/cli-no-xdebug/php.ini -S 0.0.0.0:8000 -t ${PWD}/${WORKER_ROOT} > /dev/null\n" +
+            "    docker run \\\n" +
+            "        -d \\\n" +
+            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_worker_chrome_${WORKER} \\\n" +
+            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
+            "        --network-alias chrome-w${WORKER} \\\n" +
+            "        selenium/standalone-chrome:3.12 > /dev/null\n" +
+            "done\n" +
+            "for WORKER in $(seq 2 " + numberOfWorkers + "); do\n" +
+            "    docker run --rm --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test alpine:3.8 /bin/sh -c \"" +
+                "COUNT=0; while ! nc -z chrome-w${WORKER} 4444; do if [ \\${COUNT} -ge 60 ]; then exit 1; fi; COUNT=\\$((COUNT + 1)); sleep 1; done" +
+            "\" || exit 1\n" +
+            "done\n" +
+            "echo \"Started " + (numberOfWorkers - 1) + " additional acceptance workers in ${SECONDS} seconds\"\n";
+    }
+
+    /**
+     * Remove the web and chrome containers of additional acceptance workers,
+     * see getScriptTaskCodeceptionBackendGroup()
+     */
+    protected Task getTaskStopAcceptanceWorkers() {
+        return this.getShared("getTaskStopAcceptanceWorkers", () -> new ScriptTask()
+            .description("Stop acceptance worker containers")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                "docker ps -aq --filter name=${BAMBOO_COMPOSE_PROJECT_NAME}sib_worker_ | xargs -r docker rm -f\n" +
+                "exit 0\n"
+            ));
+    }
+
+    /**
+     * Job installing TYPO3 for the backend acceptance tests once per plan run,
+     * including the styleguide data. Runs the codeception Snapshot suite, which
+     * only sets up the instance with BackendCoreEnvironment and verifies it.
+     * The instance below typo3temp/var/tests/acceptance without caches, a dump
+     * of its database and the workspace path it was set up in are published as
+     * shared artifact "Acceptance snapshot", consumed by getTaskRestoreAcceptanceSnapshot().
+     *
+     * Uses the composer artifact, so it must run in a stage after getJobComposerArtifact().
+     *
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
+     * @param Boolean isSecurity
+     */
+    protected Job getJobAcceptanceTestSnapshot(String requirementIdentifier, String composerMode, Boolean isSecurity) {
+        return new Job("Acceptance snapshot " + requirementIdentifier, new BambooKey("ACSNAP" + requirementIdentifier))
+            .description("Install TYPO3 for backend acceptance tests and publish instance and database " + requirementIdentifier)
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
+                this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                this.getTaskPrepareAcceptanceTest(),
+                this.getTaskDockerDependenciesAcceptanceBackendMariadb10(requirementIdentifier),
+                new ScriptTask()
+                    .description("Set up acceptance test instance")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function codecept() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        -e typo3DatabaseName=func_test \\\n" +
+                        "        -e typo3DatabaseUsername=root \\\n" +
+                        "        -e typo3DatabasePassword=funcp  \\\n" +
+                        "        -e typo3DatabaseHost=mariadb10  \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; ./bin/codecept $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "codecept run Snapshot -d -c typo3/sysext/core/Tests/codeception.yml --xml reports.xml --html reports.html || exit 1\n"
+                    ),
+                new ScriptTask()
+                    .description("Archive acceptance test instance and database")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "mkdir -p acceptance-snapshot\n" +
+                        "echo ${PWD} > acceptance-snapshot/root\n" +
+                        "tar --exclude=./typo3temp/var/cache -I \"zstd -T0 -3\" -cf acceptance-snapshot/instance.tar.zst -C typo3temp/var/tests/acceptance . || exit 1\n" +
+                        "docker run \\\n" +
+                        "    -u ${HOST_UID} \\\n" +
+                        "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+                        "    --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
+                        "    --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
+                        "    --rm \\\n" +
+                        "    mariadb:10.3 \\\n" +
+                        "    /bin/sh -c \"" +
+                            "mysqldump -h mariadb10 -uroot -pfuncp --single-transaction --result-file=${PWD}/acceptance-snapshot/database.sql func_test_at && " +
+                            "gzip ${PWD}/acceptance-snapshot/database.sql" +
+                        "\" || exit 1\n" +
+                        "ls -l acceptance-snapshot"
+                    )
+            )
+            .finalTasks(
+                this.getTaskStopRunner(),
+                this.getTaskStopDockerDependencies(),
+                new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
+                    .resultDirectories("typo3temp/var/tests/AcceptanceReports/reports.xml")
+            )
+            .artifacts(
+                new Artifact()
+                    .name("Acceptance snapshot")
+                    .location("acceptance-snapshot")
+                    .copyPattern("*")
+                    .shared(true)
+                    .required(true),
+                new Artifact()
+                    .name("Test Report")
+                    .copyPattern("typo3temp/var/tests/AcceptanceReports/")
+                    .shared(false)
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
+    }
+
+    /**
+     * Task restoring the acceptance test instance and its database created by
+     * getJobAcceptanceTestSnapshot() in the early stage. Jobs subscribe
+     * to the artifact with getArtifactSubscriptionAcceptanceSnapshot().
+     */
+    protected Task getTaskRestoreAcceptanceSnapshot() {
+        return this.getShared("getTaskRestoreAcceptanceSnapshot", () -> {
+            return new ScriptTask()
+                .description("Restore acceptance test instance and database")
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    this.getScriptTaskBashInlineBody() +
+                    this.getScriptTaskRestoreAcceptanceSnapshot() +
+                    "restoreAcceptanceSnapshot . func_test || exit 1\n" +
+                    "echo \"Restored acceptance snapshot in ${SECONDS} seconds\""
+                );
+        });
+    }
+
+    /**
+     * Bash function restoreAcceptanceSnapshot <root> <database>, unpacking the
+     * acceptance snapshot of the job workspace into the instance below given
+     * workspace root. Absolute links and paths of the workspace the snapshot was
+     * created in are rewritten, the dump is imported into database <database>_at
+     * of mariadb10, which the testing framework would have used as well.
+     */
+    protected String getScriptTaskRestoreAcceptanceSnapshot() {
+        return
+            "function restoreAcceptanceSnapshot() {\n" +
+            "    ROOT=$(cd $1 && pwd)\n" +
+            "    DATABASE=$2_at\n" +
+            "    INSTANCE=${ROOT}/typo3temp/var/tests/acceptance\n" +
+            "    SNAPSHOT_ROOT=$(cat acceptance-snapshot/root)\n" +
+            "    rm -rf ${INSTANCE}\n" +
+            "    mkdir -p ${INSTANCE}\n" +
+            "    tar -I zstd -xf acceptance-snapshot/instance.tar.zst -C ${INSTANCE} || return 1\n" +
+            "    for LINK in $(find ${INSTANCE} -type l); do\n" +
+            "        TARGET=$(readlink ${LINK})\n" +
+            "        case ${TARGET} in\n" +
+            "            ${SNAPSHOT_ROOT}/*) ln -sfn ${ROOT}/${TARGET#${SNAPSHOT_ROOT}/} ${LINK} ;;\n" +
+            "        esac\n" +
+            "    done\n" +
+            "    grep -rlF ${SNAPSHOT_ROOT}/ ${INSTANCE}/typo3conf --include=*.php | xargs -r sed -i \"s#${SNAPSHOT_ROOT}/#${ROOT}/#g\"\n" +
+            "    sed -i \"s/'func_test_at'/'${DATABASE}'/\" ${INSTANCE}/typo3conf/LocalConfiguration.php\n" +
+            "    docker run \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
+            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
+            "        --rm \\\n" +
+            "        mariadb:10.3 \\\n" +
+            "        /bin/sh -c \"" +
+                "mysql -h mariadb10 -uroot -pfuncp -e 'CREATE DATABASE ${DATABASE}' && " +
+                "gunzip -c ${PWD}/acceptance-snapshot/database.sql.gz | mysql -h mariadb10 -uroot -pfuncp ${DATABASE}" +
+            "\" || return 1\n" +
+            "}\n" +
+            "\n";
+    }
+
     /**
      * Jobs for mysql based functional tests
      *
      * @param int stageNumber
      * @param int numberOfChunks
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected ArrayList<Job> getJobsFunctionalTestsMysql(int stageNumber, int numberOfChunks, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected ArrayList<Job> getJobsFunctionalTestsMysql(int stageNumber, int numberOfChunks, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         ArrayList<Job> jobs = new ArrayList<Job>();
 
         for (int i=1; i<=numberOfChunks; i++) {
-            String formattedI = "" + i;
-            if (i < 10) {
-                formattedI = "0" + i;
-            }
-            jobs.add(new Job("Func mysql " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FMY" + stageNumber + requirementIdentifier + formattedI))
+            String formattedI = TimingProfile.formatChunk(i, numberOfChunks);
+            Job job = new Job("Func mysql " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FMY" + stageNumber + requirementIdentifier + formattedI))
                 .description("Run functional tests on mysql DB " + requirementIdentifier)
                 .pluginConfigurations(this.getDefaultJobPluginConfiguration())
                 .tasks(
-                    this.getTaskGitCloneRepository(),
-                    this.getTaskGitCherryPick(isSecurity),
+                    this.getTaskCheckoutWorkspace(),
+                    this.getTaskVerifyWorkspace(isSecurity),
                     this.getTaskStopDanglingContainers(),
-                    composerTask,
+                    this.getTaskPullDockerImages(),
+                    this.getTaskStartRunner(requirementIdentifier),
+                    this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                     this.getTaskDockerDependenciesFunctionalMariadb10(),
-                    this.getTaskSplitFunctionalJobs(numberOfChunks, requirementIdentifier),
+                    this.getTaskSplitFunctionalJobs(numberOfChunks * this.numberOfFunctionalTestWorkers, requirementIdentifier, "functional-mysql"),
                     new ScriptTask()
                         .description("Run phpunit with functional chunk " + formattedI)
                         .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                         .inlineBody(
                             this.getScriptTaskBashInlineBody() +
                             "function phpunit() {\n" +
-                            "    docker run \\\n" +
+                            "    docker exec \\\n" +
                             "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                            "        -e typo3DatabaseName=func_test \\\n" +
+                            "        -e typo3DatabaseName=func_test${WORKER_SUFFIX} \\\n" +
                             "        -e typo3DatabaseUsername=root \\\n" +
                             "        -e typo3DatabasePassword=funcp \\\n" +
                             "        -e typo3DatabaseHost=mariadb10 \\\n" +
                             "        -e typo3TestingRedisHost=${BAMBOO_COMPOSE_PROJECT_NAME}sib_redis4_1 \\\n" +
                             "        -e typo3TestingMemcachedHost=${BAMBOO_COMPOSE_PROJECT_NAME}sib_memcached1-5_1 \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                            "        -e typo3TestingRedisDatabase=${REDIS_DATABASE} \\\n" +
+                            "        -e typo3TestingMemcachedKeyPrefix=${WORKER_SUFFIX} \\\n" +
+                            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                             "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
                             "}\n" +
                             "\n" +
-                            "phpunit --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "FunctionalTests-Job-" + i + ".xml"
+                            this.getScriptTaskPhpunitFunctional(i, "")
                         )
                 )
                 .finalTasks(
+                    this.getTaskStopRunner(),
                     this.getTaskStopDockerDependencies(),
                     new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                         .resultDirectories("test-reports/phpunit.xml")
                 )
+                .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+                .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
                 .requirements(
                     this.getRequirementDocker10()
                 )
-                .cleanWorkingDirectory(true)
-            );
+                .cleanWorkingDirectory(true);
+            if (this.useDurationBasedFunctionalSplit) {
+                job
+                    .artifactSubscriptions(this.getArtifactSubscriptionTestDurations())
+                    .finalTasks(this.getTaskStoreTestDurations("functional-mysql"));
+            }
+            jobs.add(job);
         }
 
         return jobs;
@@ -622,67 +1569,76 @@ abstract public class AbstractCoreSpec {
      * @param int stageNumber
      * @param int numberOfChunks
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected ArrayList<Job> getJobsFunctionalTestsMssql(int stageNumber, int numberOfChunks, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected ArrayList<Job> getJobsFunctionalTestsMssql(int stageNumber, int numberOfChunks, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         ArrayList<Job> jobs = new ArrayList<Job>();
 
         for (int i=1; i<=numberOfChunks; i++) {
-            String formattedI = "" + i;
-            if (i < 10) {
-                formattedI = "0" + i;
-            }
-            jobs.add(new Job("Func mssql " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FMS" + stageNumber + requirementIdentifier + formattedI))
+            String formattedI = TimingProfile.formatChunk(i, numberOfChunks);
+            Job job = new Job("Func mssql " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FMS" + stageNumber + requirementIdentifier + formattedI))
                 .description("Run functional tests on mysql DB " + requirementIdentifier)
                 .pluginConfigurations(this.getDefaultJobPluginConfiguration())
                 .tasks(
-                    this.getTaskGitCloneRepository(),
-                    this.getTaskGitCherryPick(isSecurity),
+                    this.getTaskCheckoutWorkspace(),
+                    this.getTaskVerifyWorkspace(isSecurity),
                     this.getTaskStopDanglingContainers(),
-                    composerTask,
+                    this.getTaskPullDockerImages(),
+                    this.getTaskStartRunner(requirementIdentifier),
+                    this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                     this.getTaskDockerDependenciesFunctionalMssql(),
-                    this.getTaskSplitFunctionalJobs(numberOfChunks, requirementIdentifier),
-                    new ScriptTask()
-                        .description("Run phpunit with functional chunk " + formattedI)
-                        .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                        .inlineBody(
-                            this.getScriptTaskBashInlineBody() +
-                            "function phpunit() {\n" +
-                            "    docker run \\\n" +
-                            "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                            "        -e typo3DatabaseDriver=sqlsrv \\\n" +
-                            "        -e typo3DatabaseName=func \\\n" +
-                            "        -e typo3DatabasePassword=Test1234! \\\n" +
-                            "        -e typo3DatabaseUsername=SA \\\n" +
-                            "        -e typo3DatabaseHost=localhost \\\n" +
-                            "        -e typo3DatabasePort=1433 \\\n" +
-                            "        -e typo3DatabaseCharset=utf-8 \\\n" +
-                            "        -e typo3DatabaseHost=mssql2017cu9 \\\n" +
-                            "        -e typo3TestingRedisHost=${BAMBOO_COMPOSE_PROJECT_NAME}sib_redis4_1 \\\n" +
-                            "        -e typo3TestingMemcachedHost=${BAMBOO_COMPOSE_PROJECT_NAME}sib_memcached1-5_1 \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
-                            "}\n" +
-                            "\n" +
-                            "phpunit --exclude-group not-mssql --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "FunctionalTests-Job-" + i + ".xml"
-                        )
+                    this.getTaskSplitFunctionalJobs(numberOfChunks * this.numberOfFunctionalTestWorkers, requirementIdentifier, "functional-mssql")
                 )
                 .finalTasks(
+                    this.getTaskStopRunner(),
                     this.getTaskStopDockerDependencies(),
                     new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                         .resultDirectories("test-reports/phpunit.xml")
                 )
+                .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+                .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
                 .requirements(
                     this.getRequirementDocker10()
                 )
-                .cleanWorkingDirectory(true)
+                .cleanWorkingDirectory(true);
+            if (Arrays.asList(this.functionalDatabaseTemplates).contains("mssql2017cu9")) {
+                job.tasks(this.getTaskCreateFunctionalDatabaseTemplate("mssql2017cu9"));
+            }
+            job.tasks(
+                new ScriptTask()
+                    .description("Run phpunit with functional chunk " + formattedI)
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function phpunit() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        -e typo3DatabaseDriver=sqlsrv \\\n" +
+                        "        -e typo3DatabaseName=func${WORKER_SUFFIX} \\\n" +
+                        "        -e typo3DatabasePassword=Test1234! \\\n" +
+                        "        -e typo3DatabaseUsername=SA \\\n" +
+                        "        -e typo3DatabaseHost=localhost \\\n" +
+                        "        -e typo3DatabasePort=1433 \\\n" +
+                        "        -e typo3DatabaseCharset=utf-8 \\\n" +
+                        "        -e typo3DatabaseHost=mssql2017cu9 \\\n" +
+                        "        -e typo3TestingRedisHost=${BAMBOO_COMPOSE_PROJECT_NAME}sib_redis4_1 \\\n" +
+                        "        -e typo3TestingMemcachedHost=${BAMBOO_COMPOSE_PROJECT_NAME}sib_memcached1-5_1 \\\n" +
+                        "        -e typo3TestingRedisDatabase=${REDIS_DATABASE} \\\n" +
+                        "        -e typo3TestingMemcachedKeyPrefix=${WORKER_SUFFIX} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        this.getScriptTaskPhpunitFunctional(i, "--exclude-group not-mssql")
+                    )
             );
+            if (this.useDurationBasedFunctionalSplit) {
+                job
+                    .artifactSubscriptions(this.getArtifactSubscriptionTestDurations())
+                    .finalTasks(this.getTaskStoreTestDurations("functional-mssql"));
+            }
+            jobs.add(job);
         }
 
         return jobs;
@@ -694,64 +1650,73 @@ abstract public class AbstractCoreSpec {
      * @param int stageNumber
      * @param int numberOfChunks
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected ArrayList<Job> getJobsFunctionalTestsPgsql(int stageNumber, int numberOfChunks, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected ArrayList<Job> getJobsFunctionalTestsPgsql(int stageNumber, int numberOfChunks, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         ArrayList<Job> jobs = new ArrayList<Job>();
-
-        for (int i=1; i<=numberOfChunks; i++) {
-            String formattedI = "" + i;
-            if (i < 10) {
-                formattedI = "0" + i;
-            }
-            jobs.add(new Job("Func pgsql " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FPG" + stageNumber + requirementIdentifier + formattedI))
-                .description("Run functional tests on pgsql DB " + requirementIdentifier)
-                .pluginConfigurations(this.getDefaultJobPluginConfiguration())
-                .tasks(
-                    this.getTaskGitCloneRepository(),
-                    this.getTaskGitCherryPick(isSecurity),
-                    this.getTaskStopDanglingContainers(),
-                    composerTask,
-                    this.getTaskDockerDependenciesFunctionalPostgres10(),
-                    this.getTaskSplitFunctionalJobs(numberOfChunks, requirementIdentifier),
-                    new ScriptTask()
-                        .description("Run phpunit with functional chunk " + formattedI)
-                        .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                        .inlineBody(
-                            this.getScriptTaskBashInlineBody() +
-                            "function phpunit() {\n" +
-                            "    docker run \\\n" +
-                            "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                            "        -e typo3DatabaseDriver=pdo_pgsql \\\n" +
-                            "        -e typo3DatabaseName=bamboo \\\n" +
-                            "        -e typo3DatabaseUsername=bamboo \\\n" +
-                            "        -e typo3DatabaseHost=postgres10 \\\n" +
-                            "        -e typo3DatabasePassword=funcp \\\n" +
-                            "        -e typo3TestingRedisHost=redis4 \\\n" +
-                            "        -e typo3TestingMemcachedHost=memcached1-5 \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
-                            "}\n" +
-                            "\n" +
-                            "phpunit --exclude-group not-postgres --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "FunctionalTests-Job-" + i + ".xml"
-                        )
+
+        for (int i=1; i<=numberOfChunks; i++) {
+            String formattedI = TimingProfile.formatChunk(i, numberOfChunks);
+            Job job = new Job("Func pgsql " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FPG" + stageNumber + requirementIdentifier + formattedI))
+                .description("Run functional tests on pgsql DB " + requirementIdentifier)
+                .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+                .tasks(
+                    this.getTaskCheckoutWorkspace(),
+                    this.getTaskVerifyWorkspace(isSecurity),
+                    this.getTaskStopDanglingContainers(),
+                    this.getTaskPullDockerImages(),
+                    this.getTaskStartRunner(requirementIdentifier),
+                    this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                    this.getTaskDockerDependenciesFunctionalPostgres10(),
+                    this.getTaskSplitFunctionalJobs(numberOfChunks * this.numberOfFunctionalTestWorkers, requirementIdentifier, "functional-pgsql")
                 )
                 .finalTasks(
+                    this.getTaskStopRunner(),
                     this.getTaskStopDockerDependencies(),
                     new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                         .resultDirectories("test-reports/phpunit.xml")
                 )
+                .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+                .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
                 .requirements(
                     this.getRequirementDocker10()
                 )
-                .cleanWorkingDirectory(true)
+                .cleanWorkingDirectory(true);
+            if (Arrays.asList(this.functionalDatabaseTemplates).contains("postgres10")) {
+                job.tasks(this.getTaskCreateFunctionalDatabaseTemplate("postgres10"));
+            }
+            job.tasks(
+                new ScriptTask()
+                    .description("Run phpunit with functional chunk " + formattedI)
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function phpunit() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        -e typo3DatabaseDriver=pdo_pgsql \\\n" +
+                        "        -e typo3DatabaseName=bamboo${WORKER_SUFFIX} \\\n" +
+                        "        -e typo3DatabaseUsername=bamboo \\\n" +
+                        "        -e typo3DatabaseHost=postgres10 \\\n" +
+                        "        -e typo3DatabasePassword=funcp \\\n" +
+                        "        -e typo3TestingRedisHost=redis4 \\\n" +
+                        "        -e typo3TestingMemcachedHost=memcached1-5 \\\n" +
+                        "        -e typo3TestingRedisDatabase=${REDIS_DATABASE} \\\n" +
+                        "        -e typo3TestingMemcachedKeyPrefix=${WORKER_SUFFIX} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        this.getScriptTaskPhpunitFunctional(i, "--exclude-group not-postgres")
+                    )
             );
+            if (this.useDurationBasedFunctionalSplit) {
+                job
+                    .artifactSubscriptions(this.getArtifactSubscriptionTestDurations())
+                    .finalTasks(this.getTaskStoreTestDurations("functional-pgsql"));
+            }
+            jobs.add(job);
         }
 
         return jobs;
@@ -763,26 +1728,25 @@ abstract public class AbstractCoreSpec {
      * @param int stageNumber
      * @param int numberOfChunks
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected ArrayList<Job> getJobsFunctionalTestsSqlite(int stageNumber, int numberOfChunks, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected ArrayList<Job> getJobsFunctionalTestsSqlite(int stageNumber, int numberOfChunks, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         ArrayList<Job> jobs = new ArrayList<Job>();
 
         for (int i=1; i<=numberOfChunks; i++) {
-            String formattedI = "" + i;
-            if (i < 10) {
-                formattedI = "0" + i;
-            }
-            jobs.add(new Job("Func sqlite " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FSL" + stageNumber + requirementIdentifier + formattedI))
+            String formattedI = TimingProfile.formatChunk(i, numberOfChunks);
+            Job job = new Job("Func sqlite " + stageNumber + " " + requirementIdentifier + " " + formattedI, new BambooKey("FSL" + stageNumber + requirementIdentifier + formattedI))
                 .description("Run functional tests on sqlite DB " + requirementIdentifier)
                 .pluginConfigurations(this.getDefaultJobPluginConfiguration())
                 .tasks(
-                    this.getTaskGitCloneRepository(),
-                    this.getTaskGitCherryPick(isSecurity),
+                    this.getTaskCheckoutWorkspace(),
+                    this.getTaskVerifyWorkspace(isSecurity),
                     this.getTaskStopDanglingContainers(),
-                    composerTask,
-                    this.getTaskSplitFunctionalJobs(numberOfChunks, requirementIdentifier),
+                    this.getTaskPullDockerImages(),
+                    this.getTaskStartRunner(requirementIdentifier),
+                    this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                    this.getTaskSplitFunctionalJobs(numberOfChunks * this.numberOfFunctionalTestWorkers, requirementIdentifier, "functional-sqlite"),
                     this.getTaskDockerDependenciesFunctionalSqlite(),
                     new ScriptTask()
                         .description("Run phpunit with functional chunk " + formattedI)
@@ -790,33 +1754,38 @@ abstract public class AbstractCoreSpec {
                         .inlineBody(
                             this.getScriptTaskBashInlineBody() +
                             "function phpunit() {\n" +
-                            "    docker run \\\n" +
+                            "    docker exec \\\n" +
                             "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
                             "        -e typo3DatabaseDriver=pdo_sqlite \\\n" +
                             "        -e typo3TestingRedisHost=redis4 \\\n" +
                             "        -e typo3TestingMemcachedHost=memcached1-5 \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                            "        -e typo3TestingRedisDatabase=${REDIS_DATABASE} \\\n" +
+                            "        -e typo3TestingMemcachedKeyPrefix=${WORKER_SUFFIX} \\\n" +
+                            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                             "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
                             "}\n" +
                             "\n" +
-                            "phpunit --exclude-group not-sqlite --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "FunctionalTests-Job-" + i + ".xml"
+                            this.getScriptTaskPhpunitFunctional(i, "--exclude-group not-sqlite")
                         )
                 )
                 .finalTasks(
+                    this.getTaskStopRunner(),
                     this.getTaskStopDockerDependencies(),
                     new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                         .resultDirectories("test-reports/phpunit.xml")
                 )
+                .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+                .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
                 .requirements(
                     this.getRequirementDocker10()
                 )
-                .cleanWorkingDirectory(true)
-            );
+                .cleanWorkingDirectory(true);
+            if (this.useDurationBasedFunctionalSplit) {
+                job
+                    .artifactSubscriptions(this.getArtifactSubscriptionTestDurations())
+                    .finalTasks(this.getTaskStoreTestDurations("functional-sqlite"));
+            }
+            jobs.add(job);
         }
 
         return jobs;
@@ -827,37 +1796,40 @@ abstract public class AbstractCoreSpec {
      *
      * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobIntegrationAnnotations(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected Job getJobIntegrationAnnotations(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         return new Job("Integration annotations " + stageNumber, new BambooKey("IANNO" + stageNumber))
             .description("Check docblock-annotations by executing Build/Scripts/annotationChecker.php script")
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                 new ScriptTask()
                     .description("Execute annotations check script")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function annotationChecker() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/annotationChecker.php $*\"\n" +
                         "}\n" +
                         "\n" +
                         "annotationChecker"
                     )
             )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -869,37 +1841,40 @@ abstract public class AbstractCoreSpec {
      *
      * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobIntegrationDocBlocks(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected Job getJobIntegrationDocBlocks(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         return new Job("Integration doc blocks " + stageNumber, new BambooKey("IDB" + stageNumber))
             .description("Check doc blocks by executing Build/Scripts/docBlockChecker.php script")
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                 new ScriptTask()
                     .description("Execute doc block check script")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function dockBlockChecker() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/docBlockChecker.php $*\"\n" +
                         "}\n" +
                         "\n" +
                         "dockBlockChecker"
                     )
             )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -911,19 +1886,21 @@ abstract public class AbstractCoreSpec {
      *
      * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobIntegrationVarious(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected Job getJobIntegrationVarious(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         // Exception code checker, xlf, permissions, rst file check
         return new Job("Integration various " + stageNumber, new BambooKey("CDECC" + stageNumber))
             .description("Checks duplicate exceptions, git submodules, xlf files, permissions, rst")
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                 new ScriptTask()
                     .description("Run duplicate exception code check script")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
@@ -961,13 +1938,9 @@ abstract public class AbstractCoreSpec {
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function validateRstFiles() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/validateRstFiles.php $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -986,13 +1959,9 @@ abstract public class AbstractCoreSpec {
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function extensionScannerRstFileReferences() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/extensionScannerRstFileReferences.php $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -1004,13 +1973,9 @@ abstract public class AbstractCoreSpec {
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function checkIntegrityCsvFixtures() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/checkIntegrityCsvFixtures.php $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -1022,13 +1987,9 @@ abstract public class AbstractCoreSpec {
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function checkIntegrityBom() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/checkUtf8Bom.sh $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -1040,19 +2001,20 @@ abstract public class AbstractCoreSpec {
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function checkIntegrityComposer() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/checkIntegrityComposer.php $*\"\n" +
                         "}\n" +
                         "\n" +
                         "checkIntegrityComposer"
                     )
             )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -1064,10 +2026,10 @@ abstract public class AbstractCoreSpec {
      *
      * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobUnitJavaScript(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected Job getJobUnitJavaScript(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         return new Job("Unit JavaScript " + stageNumber, new BambooKey("JSUT" + stageNumber))
             .description("Run JavaScript unit tests")
             .pluginConfigurations(
@@ -1094,43 +2056,23 @@ abstract public class AbstractCoreSpec {
                 )
             )
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
-                new ScriptTask()
-                    .description("yarn install in Build/ dir")
-                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                    .inlineBody(
-                        this.getScriptTaskBashInlineBody() +
-                        "function yarn() {\n" +
-                        "    docker run \\\n" +
-                        "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        -e HOME=${HOME} \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}/Build; yarn $*\"\n" +
-                        "}\n" +
-                        "\n" +
-                        "yarn install"
-                    ),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
+                this.getTaskYarnArtifact(requirementIdentifier),
                 new ScriptTask()
                     .description("Run tests")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function karma() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
                         "        -e HOME=${HOME} \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}; ./Build/node_modules/karma/bin/karma $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -1138,9 +2080,15 @@ abstract public class AbstractCoreSpec {
                     )
             )
             .finalTasks(
+                this.getTaskStopRunner(),
                 new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                     .resultDirectories("typo3temp/var/tests/*")
             )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(
+                this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode),
+                this.getArtifactSubscriptionYarn()
+            )
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -1148,39 +2096,52 @@ abstract public class AbstractCoreSpec {
     }
 
     /**
-     * Job for PHP lint
+     * Job for PHP lint. Files are linted in parallel on all cores of the agent,
+     * files linted clean before are remembered per PHP version in an agent local
+     * volume and skipped. See Build/Scripts/phpLint.sh.
      *
      * @param String requirementIdentifier
      * @param Boolean isSecurity
      */
     protected Job getJobLintPhp(String requirementIdentifier, Boolean isSecurity) {
+        String cacheVolume = "${BAMBOO_COMPOSE_PROJECT_NAME}_lint-cache";
         return new Job("Lint " + requirementIdentifier, new BambooKey("L" + requirementIdentifier))
             .description("Run php -l on source files for linting " + requirementIdentifier)
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
                 new ScriptTask()
                     .description("Run php lint")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
+                        "function lintCacheInit() {\n" +
+                        "    docker volume create " + cacheVolume + " > /dev/null\n" +
+                        "    docker run --rm -v " + cacheVolume + ":/srv/lint-cache/ alpine:3.8 \\\n" +
+                        "        sh -c \"chown -R ${HOST_UID} /srv/lint-cache\"\n" +
+                        "}\n" +
+                        "\n" +
                         "function runLint() {\n" +
                         "    docker run \\\n" +
                         "        -u ${HOST_UID} \\\n" +
                         "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
                         "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+                        "        -v " + cacheVolume + ":/srv/lint-cache/ \\\n" +
                         "        -e HOME=${HOME} \\\n" +
                         "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
                         "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}; find . -name \\*.php -print0 | xargs -0 -n1 -P2 php -n -c /etc/php/cli-no-xdebug/php.ini -l >/dev/null\"\n" +
+                        "        " + this.getDockerImage(requirementIdentifier) + " \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; ./Build/Scripts/phpLint.sh /srv/lint-cache/" + requirementIdentifier.toLowerCase() + ".txt\"\n" +
                         "}\n" +
                         "\n" +
+                        "lintCacheInit\n" +
                         "runLint"
                     )
             )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -1198,42 +2159,22 @@ abstract public class AbstractCoreSpec {
             .description("Lint scss and ts, build css and js, test git is clean")
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                new ScriptTask()
-                    .description("yarn install in Build/ dir")
-                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-                    .inlineBody(
-                        this.getScriptTaskBashInlineBody() +
-                        "function yarn() {\n" +
-                        "    docker run \\\n" +
-                        "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        -e HOME=${HOME} \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}/Build; yarn $*\"\n" +
-                        "}\n" +
-                        "\n" +
-                        "yarn install"
-                    ),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskYarnArtifact(requirementIdentifier),
                 new ScriptTask()
                     .description("Run grunt lint")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function grunt() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
                         "        -e HOME=${HOME} \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}/Build; ./node_modules/grunt/bin/grunt $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -1245,14 +2186,10 @@ abstract public class AbstractCoreSpec {
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
                         "function grunt() {\n" +
-                        "    docker run \\\n" +
+                        "    docker exec \\\n" +
                         "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
                         "        -e HOME=${HOME} \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
                         "        bin/bash -c \"cd ${PWD}/Build; ./node_modules/grunt/bin/grunt $*\"\n" +
                         "}\n" +
                         "\n" +
@@ -1274,6 +2211,11 @@ abstract public class AbstractCoreSpec {
                         "git status | grep -q \"nothing to commit, working tree clean\""
                     )
             )
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionYarn())
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -1285,42 +2227,35 @@ abstract public class AbstractCoreSpec {
      *
      * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobUnitPhp(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected Job getJobUnitPhp(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         return new Job("Unit " + stageNumber + " " + requirementIdentifier, new BambooKey("UT" + stageNumber + requirementIdentifier))
             .description("Run unit tests " + requirementIdentifier)
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                 new ScriptTask()
                     .description("Run phpunit")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
-                        "function phpunit() {\n" +
-                        "    docker run \\\n" +
-                        "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
-                        "}\n" +
-                        "\n" +
-                        "phpunit --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "UnitTests.xml"
+                        this.getScriptTaskPhpunitUnit("unit", false)
                     )
             )
             .finalTasks(
+                this.getTaskStopRunner(),
                 new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                     .resultDirectories("test-reports/phpunit.xml")
             )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -1332,42 +2267,35 @@ abstract public class AbstractCoreSpec {
      *
      * @param int stageNumber
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected Job getJobUnitDeprecatedPhp(int stageNumber, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected Job getJobUnitDeprecatedPhp(int stageNumber, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         return new Job("Unit deprecated " + stageNumber + " " + requirementIdentifier, new BambooKey("UTD" + stageNumber + requirementIdentifier))
             .description("Run deprecated unit tests " + requirementIdentifier)
             .pluginConfigurations(this.getDefaultJobPluginConfiguration())
             .tasks(
-                this.getTaskGitCloneRepository(),
-                this.getTaskGitCherryPick(isSecurity),
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
                 this.getTaskStopDanglingContainers(),
-                composerTask,
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                 new ScriptTask()
                     .description("Run phpunit")
                     .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                     .inlineBody(
                         this.getScriptTaskBashInlineBody() +
-                        "function phpunit() {\n" +
-                        "    docker run \\\n" +
-                        "        -u ${HOST_UID} \\\n" +
-                        "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                        "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                        "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                        "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                        "        --rm \\\n" +
-                        "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
-                        "}\n" +
-                        "\n" +
-                        "phpunit --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "UnitTestsDeprecated.xml"
+                        this.getScriptTaskPhpunitUnit("unit-deprecated", false)
                     )
             )
             .finalTasks(
+                this.getTaskStopRunner(),
                 new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                     .resultDirectories("test-reports/phpunit.xml")
             )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
             .requirements(
                 this.getRequirementDocker10()
             )
@@ -1380,10 +2308,10 @@ abstract public class AbstractCoreSpec {
      * @param int stageNumber
      * @param int numberOfRuns
      * @param String requirementIdentifier
-     * @param Task composerTask
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      * @param Boolean isSecurity
      */
-    protected ArrayList<Job> getJobUnitPhpRandom(int stageNumber, int numberOfRuns, String requirementIdentifier, Task composerTask, Boolean isSecurity) {
+    protected ArrayList<Job> getJobUnitPhpRandom(int stageNumber, int numberOfRuns, String requirementIdentifier, String composerMode, Boolean isSecurity) {
         ArrayList<Job> jobs = new ArrayList<Job>();
 
         for (int i=1; i<=numberOfRuns; i++) {
@@ -1391,34 +2319,27 @@ abstract public class AbstractCoreSpec {
                 .description("Run unit tests on " + requirementIdentifier + " in random order 0" + i)
                 .pluginConfigurations(this.getDefaultJobPluginConfiguration())
                 .tasks(
-                    this.getTaskGitCloneRepository(),
-                    this.getTaskGitCherryPick(isSecurity),
+                    this.getTaskCheckoutWorkspace(),
+                    this.getTaskVerifyWorkspace(isSecurity),
                     this.getTaskStopDanglingContainers(),
-                    composerTask,
+                    this.getTaskPullDockerImages(),
+                    this.getTaskStartRunner(requirementIdentifier),
+                    this.getTaskComposerArtifact(requirementIdentifier, composerMode),
                     new ScriptTask()
                         .description("Run phpunit random order")
                         .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                         .inlineBody(
                             this.getScriptTaskBashInlineBody() +
-                            "function phpunit() {\n" +
-                            "    docker run \\\n" +
-                            "        -u ${HOST_UID} \\\n" +
-                            "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                            "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                            "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                            "        --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
-                            "        --rm \\\n" +
-                            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
-                            "}\n" +
-                            "\n" +
-                            "phpunit --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "UnitTests.xml --order-by=random"
+                            this.getScriptTaskPhpunitUnit("unit", true)
                         )
                 )
                 .finalTasks(
+                    this.getTaskStopRunner(),
                     new TestParserTask(TestParserTaskProperties.TestType.JUNIT)
                         .resultDirectories("test-reports/phpunit.xml")
                 )
+                .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+                .artifactSubscriptions(this.getArtifactSubscriptionComposer(requirementIdentifier, composerMode))
                 .requirements(
                     this.getRequirementDocker10()
                 )
@@ -1433,9 +2354,9 @@ abstract public class AbstractCoreSpec {
      * Task definition for basic core clone of linked default repository
      */
     protected Task getTaskGitCloneRepository() {
-        return new VcsCheckoutTask()
+        return this.getShared("getTaskGitCloneRepository", () -> new VcsCheckoutTask()
             .description("Checkout git core")
-            .checkoutItems(new CheckoutItem().defaultRepository());
+            .checkoutItems(new CheckoutItem().defaultRepository()));
     }
 
     /**
@@ -1444,35 +2365,191 @@ abstract public class AbstractCoreSpec {
      * @param Boolean isSecurity
      */
     protected Task getTaskGitCherryPick(Boolean isSecurity) {
-        if (isSecurity) {
+        return this.getShared("getTaskGitCherryPick:" + isSecurity, () -> {
+            if (isSecurity) {
+                return new ScriptTask()
+                    .description("Gerrit cherry pick")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "CHANGEURL=${bamboo.changeUrl}\n" +
+                        "CHANGEURLID=${CHANGEURL#https://review.typo3.org/}\n" +
+                        "PATCHSET=${bamboo.patchset}\n" +
+                        "\n" +
+                        "if [[ $CHANGEURL ]]; then\n" +
+                        "    gerrit-cherry-pick https://review.typo3.org/Teams/Security/TYPO3v4-Core $CHANGEURLID/$PATCHSET || exit 1\n" +
+                        "fi\n"
+                    );
+            } else {
+                return new ScriptTask()
+                    .description("Gerrit cherry pick")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "CHANGEURL=${bamboo.changeUrl}\n" +
+                        "CHANGEURLID=${CHANGEURL#https://review.typo3.org/}\n" +
+                        "PATCHSET=${bamboo.patchset}\n" +
+                        "\n" +
+                        "if [[ $CHANGEURL ]]; then\n" +
+                        "    gerrit-cherry-pick https://review.typo3.org/Packages/TYPO3.CMS $CHANGEURLID/$PATCHSET || exit 1\n" +
+                        "fi\n"
+                    );
+            }
+        });
+    }
+
+    /**
+     * First task of all jobs after the preparation stage: Unpack the workspace
+     * created by getJobWorkspaceSnapshot(), or clone core if snapshots are disabled.
+     * Jobs subscribe to the snapshot with getArtifactSubscriptionsWorkspace().
+     */
+    protected Task getTaskCheckoutWorkspace() {
+        if (!this.useWorkspaceSnapshot) {
+            return this.getTaskGitCloneRepository();
+        }
+        return this.getShared("getTaskCheckoutWorkspace", () -> {
             return new ScriptTask()
-                .description("Gerrit cherry pick")
+                .description("Unpack workspace snapshot")
                 .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                 .inlineBody(
                     this.getScriptTaskBashInlineBody() +
-                    "CHANGEURL=${bamboo.changeUrl}\n" +
-                    "CHANGEURLID=${CHANGEURL#https://review.typo3.org/}\n" +
-                    "PATCHSET=${bamboo.patchset}\n" +
-                    "\n" +
-                    "if [[ $CHANGEURL ]]; then\n" +
-                    "    gerrit-cherry-pick https://review.typo3.org/Teams/Security/TYPO3v4-Core $CHANGEURLID/$PATCHSET || exit 1\n" +
-                    "fi\n"
+                    "tar -I zstd -xf workspace.tar.zst || exit 1\n" +
+                    "rm workspace.tar.zst"
                 );
-        } else {
+        });
+    }
+
+    /**
+     * Second task of all jobs after the preparation stage: Make sure the unpacked
+     * workspace is the commit recorded by getJobWorkspaceSnapshot(), based on the
+     * revision of this plan run and without local changes. Cherry picks the patch
+     * set if snapshots are disabled.
+     *
+     * @param Boolean isSecurity
+     */
+    protected Task getTaskVerifyWorkspace(Boolean isSecurity) {
+        if (!this.useWorkspaceSnapshot) {
+            return this.getTaskGitCherryPick(isSecurity);
+        }
+        return this.getShared("getTaskVerifyWorkspace", () -> new ScriptTask()
+            .description("Verify workspace commit")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                "COMMIT=$(cat workspace-commit)\n" +
+                "if [ \"$(git rev-parse HEAD)\" != \"${COMMIT}\" ]; then\n" +
+                "    echo \"Workspace is at $(git rev-parse HEAD), snapshot recorded ${COMMIT}\"\n" +
+                "    exit 1\n" +
+                "fi\n" +
+                "if ! git merge-base --is-ancestor ${bamboo.planRepository.revision} HEAD; then\n" +
+                "    echo \"Workspace ${COMMIT} is not based on revision ${bamboo.planRepository.revision}\"\n" +
+                "    exit 1\n" +
+                "fi\n" +
+                "if ! git diff --quiet HEAD; then\n" +
+                "    echo \"Workspace ${COMMIT} has local changes\"\n" +
+                "    exit 1\n" +
+                "fi\n" +
+                "echo \"Testing commit ${COMMIT}\"\n"
+            ));
+    }
+
+    /**
+     * Pull the typo3gmbh images in parallel and write their digests to
+     * docker-images.env, which the bash header of each script task sources.
+     * Run by each preparation job starting containers, jobs of later stages
+     * find the file in the workspace snapshot. Does nothing if images are not
+     * pinned.
+     */
+    protected Task getTaskResolveDockerImages() {
+        String images = "";
+        String pins = "";
+        if (this.useWorkspaceSnapshot && this.usePinnedDockerImages) {
+            for (String identifier : this.dockerImageIdentifiers) {
+                String repository = "typo3gmbh/" + identifier.toLowerCase();
+                images = images + " " + repository + ":latest";
+                pins = pins +
+                    "echo \"export IMAGE_" + identifier.toUpperCase() + "=$(docker inspect --format '{{range .RepoDigests}}{{println .}}{{end}}' " + repository + ":latest | grep '^" + repository + "@' | head -n 1)\" >> docker-images.env\n";
+            }
+        }
+        return new ScriptTask()
+            .description("Resolve docker image digests")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                (images.isEmpty() ? "exit 0\n" :
+                    "echo" + images + " | xargs -n 1 -P " + this.dockerImageIdentifiers.length + " docker pull -q || exit 1\n" +
+                    "rm -f docker-images.env\n" +
+                    pins +
+                    "cat docker-images.env\n" +
+                    "if grep -q '=$' docker-images.env; then\n" +
+                    "    echo \"Image without registry digest\"\n" +
+                    "    exit 1\n" +
+                    "fi\n"
+                )
+            );
+    }
+
+    /**
+     * Pull all images used by the plan in parallel that are not present on the
+     * agent yet, before any container is started. Pull time of a job is reported
+     * by this task and does not add to the duration of test tasks.
+     */
+    protected Task getTaskPullDockerImages() {
+        return this.getShared("getTaskPullDockerImages", () -> {
+            String images = "alpine:3.8";
+            for (String identifier : this.dockerImageIdentifiers) {
+                images = images + " " + this.getDockerImage(identifier);
+            }
             return new ScriptTask()
-                .description("Gerrit cherry pick")
+                .description("Pull docker images")
                 .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
                 .inlineBody(
                     this.getScriptTaskBashInlineBody() +
-                    "CHANGEURL=${bamboo.changeUrl}\n" +
-                    "CHANGEURLID=${CHANGEURL#https://review.typo3.org/}\n" +
-                    "PATCHSET=${bamboo.patchset}\n" +
-                    "\n" +
-                    "if [[ $CHANGEURL ]]; then\n" +
-                    "    gerrit-cherry-pick https://review.typo3.org/Packages/TYPO3.CMS $CHANGEURLID/$PATCHSET || exit 1\n" +
-                    "fi\n"
+                    "START=$(date +%s)\n" +
+                    "IMAGES=\"" + images + " $(grep -h '^ *image: [^$]' Build/testing-docker/bamboo/docker-compose*.yml | awk '{print $2}')\"\n" +
+                    "for IMAGE in ${IMAGES}; do\n" +
+                    "    docker image inspect ${IMAGE} > /dev/null 2>&1 || echo ${IMAGE}\n" +
+                    "done | sort -u > docker-pull.txt\n" +
+                    "xargs -r -n 1 -P 4 docker pull -q < docker-pull.txt || exit 1\n" +
+                    "echo \"Pulled $(wc -l < docker-pull.txt) images in $(($(date +%s) - START)) seconds\"\n" +
+                    "rm docker-pull.txt\n"
                 );
+        });
+    }
+
+    /**
+     * Image of given requirement identifier for docker run. If images are pinned,
+     * the digest resolved by getTaskResolveDockerImages(), the task fails if it
+     * is missing. The tag otherwise. getTaskPullDockerImages() expands all images
+     * before any container is started, so docker-compose never falls back to
+     * the tag default of its image lines either.
+     *
+     * @param String requirementIdentifier
+     */
+    protected String getDockerImage(String requirementIdentifier) {
+        String image = "typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest";
+        if (!this.useWorkspaceSnapshot || !this.usePinnedDockerImages) {
+            return image;
         }
+        return "${IMAGE_" + requirementIdentifier.toUpperCase() + ":?Digest of " + image + " not resolved}";
+    }
+
+    /**
+     * Bash lines failing the task if the image recorded in given file by the job
+     * that built an artifact is not the image of this job. Preparation jobs resolve
+     * digests on their own, a tag updated meanwhile would otherwise mix images.
+     *
+     * @param String requirementIdentifier
+     * @param String imageFile
+     */
+    protected String getScriptTaskVerifyArtifactImage(String requirementIdentifier, String imageFile) {
+        return
+            "ARTIFACT_IMAGE=$(cat " + imageFile + ")\n" +
+            "rm " + imageFile + "\n" +
+            "if [ \"${ARTIFACT_IMAGE}\" != \"" + this.getDockerImage(requirementIdentifier) + "\" ]; then\n" +
+            "    echo \"Artifact built on ${ARTIFACT_IMAGE}, this job runs on " + this.getDockerImage(requirementIdentifier) + "\"\n" +
+            "    exit 1\n" +
+            "fi\n";
     }
 
     /**
@@ -1480,7 +2557,7 @@ abstract public class AbstractCoreSpec {
      * stop any dangling containers from a previous run on this agent.
      */
     protected Task getTaskStopDanglingContainers() {
-        return new ScriptTask()
+        return this.getShared("getTaskStopDanglingContainers", () -> new ScriptTask()
             .description("Stop dangling containers")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
@@ -1488,8 +2565,52 @@ abstract public class AbstractCoreSpec {
                 "cd Build/testing-docker/bamboo\n" +
                 "docker-compose down -v\n" +
                 "docker rm -f ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc\n" +
+                "docker rm -f ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner\n" +
+                "docker ps -aq --filter name=${BAMBOO_COMPOSE_PROJECT_NAME}sib_worker_ | xargs -r docker rm -f\n" +
                 "exit 0\n"
-            );
+            ));
+    }
+
+    /**
+     * Start the job scoped runner container. Script tasks execute their commands
+     * in this container with 'docker exec' instead of starting a new container
+     * for each call. The container is connected to the test network, so it
+     * reaches the services started by docker-compose later on.
+     * Jobs using it must remove it again with getTaskStopRunner() as final task.
+     *
+     * @param String requirementIdentifier
+     */
+    protected Task getTaskStartRunner(String requirementIdentifier) {
+        return this.getShared("getTaskStartRunner:" + requirementIdentifier, () -> new ScriptTask()
+            .description("Start runner container")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                "docker run \\\n" +
+                "    -d \\\n" +
+                "    -u ${HOST_UID} \\\n" +
+                "    -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
+                "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+                "    --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                "    --network ${BAMBOO_COMPOSE_PROJECT_NAME}_test \\\n" +
+                "    " + this.getDockerImage(requirementIdentifier) + " \\\n" +
+                "    tail -f /dev/null\n" +
+                (this.useResultCache ? this.getScriptTaskResultCacheLookup() : "")
+            ));
+    }
+
+    /**
+     * Remove the runner container started by getTaskStartRunner()
+     */
+    protected Task getTaskStopRunner() {
+        return this.getShared("getTaskStopRunner", () -> new ScriptTask()
+            .description("Stop runner container")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                "docker rm -f ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner\n" +
+                "exit 0\n"
+            ));
     }
 
     /**
@@ -1558,150 +2679,348 @@ abstract public class AbstractCoreSpec {
     }
 
     /**
-     * Task to prepare an acceptance test
+     * Composer task of given mode
+     *
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
      */
-    protected Task getTaskPrepareAcceptanceTest() {
-        return new ScriptTask()
-            .description("Prepare acceptance test environment")
-            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-            .inlineBody(
-                this.getScriptTaskBashInlineBody() +
-                "mkdir -p typo3temp/var/tests/\n"
-            );
+    protected Task getTaskComposer(String requirementIdentifier, String composerMode) {
+        switch (composerMode) {
+            case "Install":
+                return this.getTaskComposerInstall(requirementIdentifier);
+            case "UpdateMax":
+                return this.getTaskComposerUpdateMax(requirementIdentifier);
+            case "UpdateMin":
+                return this.getTaskComposerUpdateMin(requirementIdentifier);
+            default:
+                throw new IllegalArgumentException("Unknown composer mode " + composerMode);
+        }
+    }
+
+    /**
+     * Task unpacking the composer dependencies created by getJobComposerArtifact()
+     * in the preparation stage. Used instead of running composer in each job,
+     * jobs subscribe to the artifact with getArtifactSubscriptionComposer().
+     *
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
+     */
+    protected Task getTaskComposerArtifact(String requirementIdentifier, String composerMode) {
+        return this.getShared("getTaskComposerArtifact:" + requirementIdentifier + ":" + composerMode, () -> {
+            String archiveName = this.getComposerArtifactArchiveName(requirementIdentifier, composerMode);
+            return new ScriptTask()
+                .description("Unpack composer " + composerMode + " dependencies")
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    this.getScriptTaskBashInlineBody() +
+                    "tar -xzf " + archiveName + " || exit 1\n" +
+                    "rm " + archiveName + "\n" +
+                    this.getScriptTaskVerifyArtifactImage(requirementIdentifier, "composer-image.txt")
+                );
+        });
     }
 
     /**
-     * Start docker sibling containers to execute acceptance install tests on mariadb
+     * Shared artifact name of composer dependencies
+     *
+     * @param String requirementIdentifier
+     * @param String composerMode
      */
-    protected Task getTaskDockerDependenciesAcceptanceInstallMariadb10() {
-        return new ScriptTask()
-            .description("Start docker siblings for acceptance test install mariadb")
-            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
-            .inlineBody(
-                this.getScriptTaskBashInlineBody() +
-                "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_acceptance_install_mariadb10"
-            );
+    protected String getComposerArtifactName(String requirementIdentifier, String composerMode) {
+        return "Composer " + composerMode + " " + requirementIdentifier;
     }
 
     /**
-     * Start docker sibling containers to execute acceptance install tests on postgres
+     * File name of the composer dependencies archive
+     *
+     * @param String requirementIdentifier
+     * @param String composerMode
      */
-    protected Task getTaskDockerDependenciesAcceptanceInstallPostgres10() {
-        return new ScriptTask()
-            .description("Start docker siblings for acceptance test install postgres")
+    protected String getComposerArtifactArchiveName(String requirementIdentifier, String composerMode) {
+        return "composer-" + composerMode.toLowerCase() + "-" + requirementIdentifier.toLowerCase() + ".tar.gz";
+    }
+
+    /**
+     * Task to prepare an acceptance test
+     */
+    protected Task getTaskPrepareAcceptanceTest() {
+        return this.getShared("getTaskPrepareAcceptanceTest", () -> new ScriptTask()
+            .description("Prepare acceptance test environment")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
-                "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_acceptance_install_postgres10"
-            );
+                "mkdir -p typo3temp/var/tests/\n"
+            ));
     }
 
     /**
-     * Start docker sibling containers to execute acceptance install tests on sqlite
+     * Start docker sibling containers to execute acceptance install tests on mariadb and postgres,
+     * the web service runs on the PHP image of the job
+     *
+     * @param String requirementIdentifier
      */
-    protected Task getTaskDockerDependenciesAcceptanceInstallSqlite() {
-        return new ScriptTask()
-            .description("Start docker siblings for acceptance test install sqlite")
+    protected Task getTaskDockerDependenciesAcceptanceInstall(String requirementIdentifier) {
+        return this.getShared("getTaskDockerDependenciesAcceptanceInstall:" + requirementIdentifier, () -> new ScriptTask()
+            .description("Start docker siblings for acceptance test install mariadb, postgres and sqlite")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_acceptance_install_sqlite"
-            );
+                this.getScriptTaskDockerComposeEnvironment() +
+                "echo IMAGE_WEB=" + this.getDockerImage(requirementIdentifier) + " >> .env\n" +
+                "docker-compose run start_dependencies_acceptance_install || exit 1\n" +
+                "echo \"Dependencies started in ${SECONDS} seconds with ephemeral database profiles: " + String.join(" ", this.ephemeralDatabaseProfiles) + "\""
+            ));
     }
 
     /**
-     * Start docker sibling containers to execute acceptance backend tests on mariadb
+     * Start docker sibling containers to execute acceptance backend tests on mariadb,
+     * the web service runs on the PHP image of the job
+     *
+     * @param String requirementIdentifier
      */
-    protected Task getTaskDockerDependenciesAcceptanceBackendMariadb10() {
-        return new ScriptTask()
+    protected Task getTaskDockerDependenciesAcceptanceBackendMariadb10(String requirementIdentifier) {
+        return this.getShared("getTaskDockerDependenciesAcceptanceBackendMariadb10:" + requirementIdentifier, () -> new ScriptTask()
             .description("Start docker siblings for acceptance test backend mariadb")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_acceptance_backend_mariadb10"
-            );
+                this.getScriptTaskDockerComposeEnvironment() +
+                "echo IMAGE_WEB=" + this.getDockerImage(requirementIdentifier) + " >> .env\n" +
+                "docker-compose run start_dependencies_acceptance_backend_mariadb10 || exit 1\n" +
+                "echo \"Dependencies started in ${SECONDS} seconds with ephemeral database profiles: " + String.join(" ", this.ephemeralDatabaseProfiles) + "\""
+            ));
     }
 
     /**
      * Start docker sibling containers to execute functional tests on mariadb
      */
     protected Task getTaskDockerDependenciesFunctionalMariadb10() {
-        return new ScriptTask()
+        return this.getShared("getTaskDockerDependenciesFunctionalMariadb10", () -> new ScriptTask()
             .description("Start docker siblings for functional tests on mariadb")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_functional_mariadb10"
-            );
+                this.getScriptTaskDockerComposeEnvironment() +
+                "docker-compose run start_dependencies_functional_mariadb10 || exit 1\n" +
+                "echo \"Dependencies started in ${SECONDS} seconds with ephemeral database profiles: " + String.join(" ", this.ephemeralDatabaseProfiles) + "\""
+            ));
     }
 
     /**
      * Start docker sibling containers to execute functional tests on mssql
      */
     protected Task getTaskDockerDependenciesFunctionalMssql() {
-        return new ScriptTask()
+        return this.getShared("getTaskDockerDependenciesFunctionalMssql", () -> new ScriptTask()
             .description("Start docker siblings for functional tests on mssql")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_functional_mssql"
-            );
+                this.getScriptTaskDockerComposeEnvironment() +
+                "docker-compose run start_dependencies_functional_mssql || exit 1\n" +
+                "echo \"Dependencies started in ${SECONDS} seconds with ephemeral database profiles: " + String.join(" ", this.ephemeralDatabaseProfiles) + "\""
+            ));
+    }
+
+    /**
+     * Create the tables of the default core extensions in the template database
+     * of the started functional test database service. The database each functional
+     * test case creates is a copy of it, so only tables and fields of additional
+     * extensions are created per test case. See Build/Scripts/createFunctionalTestDatabaseTemplate.php
+     *
+     * @param String databaseProfile One of postgres10, mssql2017cu9
+     */
+    protected Task getTaskCreateFunctionalDatabaseTemplate(String databaseProfile) {
+        return this.getShared("getTaskCreateFunctionalDatabaseTemplate:" + databaseProfile, () -> {
+            String databaseEnvironment;
+            switch (databaseProfile) {
+                case "postgres10":
+                    databaseEnvironment =
+                        "    -e typo3DatabaseDriver=pdo_pgsql \\\n" +
+                        "    -e typo3DatabaseName=bamboo \\\n" +
+                        "    -e typo3DatabaseUsername=bamboo \\\n" +
+                        "    -e typo3DatabaseHost=postgres10 \\\n" +
+                        "    -e typo3DatabasePassword=funcp \\\n";
+                    break;
+                case "mssql2017cu9":
+                    databaseEnvironment =
+                        "    -e typo3DatabaseDriver=sqlsrv \\\n" +
+                        "    -e typo3DatabaseName=func \\\n" +
+                        "    -e typo3DatabasePassword=Test1234! \\\n" +
+                        "    -e typo3DatabaseUsername=SA \\\n" +
+                        "    -e typo3DatabasePort=1433 \\\n" +
+                        "    -e typo3DatabaseCharset=utf-8 \\\n" +
+                        "    -e typo3DatabaseHost=mssql2017cu9 \\\n";
+                    break;
+                default:
+                    throw new IllegalArgumentException("No functional database template for " + databaseProfile);
+            }
+            return new ScriptTask()
+                .description("Create core tables in template database of " + databaseProfile)
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    this.getScriptTaskBashInlineBody() +
+                    "docker exec \\\n" +
+                    "    -u ${HOST_UID} \\\n" +
+                    databaseEnvironment +
+                    "    ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                    "    bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini Build/Scripts/createFunctionalTestDatabaseTemplate.php\" || exit 1\n" +
+                    "echo \"Template database created in ${SECONDS} seconds\""
+                );
+        });
     }
 
     /**
      * Start docker sibling containers to execute functional tests on postgres
      */
     protected Task getTaskDockerDependenciesFunctionalPostgres10() {
-        return new ScriptTask()
+        return this.getShared("getTaskDockerDependenciesFunctionalPostgres10", () -> new ScriptTask()
             .description("Start docker siblings for functional tests on postgres10")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_functional_postgres10"
-            );
+                this.getScriptTaskDockerComposeEnvironment() +
+                "docker-compose run start_dependencies_functional_postgres10 || exit 1\n" +
+                "echo \"Dependencies started in ${SECONDS} seconds with ephemeral database profiles: " + String.join(" ", this.ephemeralDatabaseProfiles) + "\""
+            ));
     }
 
     /**
      * Start docker sibling containers to execute functional tests on sqlite
      */
     protected Task getTaskDockerDependenciesFunctionalSqlite() {
-        return new ScriptTask()
+        return this.getShared("getTaskDockerDependenciesFunctionalSqlite", () -> new ScriptTask()
             .description("Start docker siblings for functional tests on sqlite")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
-                "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
-                "docker-compose run start_dependencies_functional_sqlite"
-            );
+                this.getScriptTaskDockerComposeEnvironment() +
+                "docker-compose run start_dependencies_functional_sqlite || exit 1\n" +
+                "echo \"Dependencies started in ${SECONDS} seconds with ephemeral database profiles: " + String.join(" ", this.ephemeralDatabaseProfiles) + "\""
+            ));
     }
 
     /**
      * Stop started docker containers
      */
     protected Task getTaskStopDockerDependencies() {
-        return new ScriptTask()
+        return this.getShared("getTaskStopDockerDependencies", () -> new ScriptTask()
             .description("Stop docker siblings")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
                 "cd Build/testing-docker/bamboo\n" +
                 "docker-compose down -v"
-            );
+            ));
+    }
+
+    /**
+     * Bash lines running unit tests with phpunit. With numberOfUnitTestWorkers
+     * greater than one, the suite is split into that many chunks by
+     * Build/Scripts/splitTestsByDuration.php and each chunk is executed by
+     * its own phpunit process in parallel. The worker reports are merged into
+     * test-reports/phpunit.xml. In random order mode, each worker gets its own
+     * seed derived from the build number, the seeds are printed to re-run a
+     * chunk in the same order.
+     *
+     * @param String suite One of unit, unit-deprecated
+     * @param Boolean randomOrder
+     */
+    protected String getScriptTaskPhpunitUnit(String suite, Boolean randomOrder) {
+        String configuration = suite.equals("unit") ? "UnitTests" : "UnitTestsDeprecated";
+        String phpunitFunction =
+            "function phpunit() {\n" +
+            "    docker exec \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini bin/phpunit $*\"\n" +
+            "}\n" +
+            "\n";
+        if (this.numberOfUnitTestWorkers <= 1) {
+            return
+                phpunitFunction +
+                "phpunit --log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + configuration + ".xml" + (randomOrder ? " --order-by=random" : "");
+        }
+        return
+            phpunitFunction +
+            "function phpScript() {\n" +
+            "    docker exec \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini $*\"\n" +
+            "}\n" +
+            "\n" +
+            "phpScript Build/Scripts/splitTestsByDuration.php " + suite + " " + this.numberOfUnitTestWorkers + " -v || exit 1\n" +
+            "mkdir -p test-reports\n" +
+            "BASE_SEED=${bamboo.buildNumber}\n" +
+            "PIDS=()\n" +
+            "for WORKER in $(seq 1 " + this.numberOfUnitTestWorkers + "); do\n" +
+            (randomOrder ?
+            "    OPTIONS=\"--order-by=random --random-order-seed=$((BASE_SEED * 100 + WORKER))\"\n" :
+            "    OPTIONS=\"\"\n") +
+            "    echo \"Worker ${WORKER}: -c " + this.testingFrameworkBuildPath + configuration + "-Job-${WORKER}.xml ${OPTIONS}\"\n" +
+            "    phpunit --log-junit test-reports/phpunit-${WORKER}.xml -c " + this.testingFrameworkBuildPath + configuration + "-Job-${WORKER}.xml ${OPTIONS} > test-reports/phpunit-${WORKER}.log 2>&1 &\n" +
+            "    PIDS+=($!)\n" +
+            "done\n" +
+            "EXIT_CODE=0\n" +
+            "for WORKER in $(seq 1 " + this.numberOfUnitTestWorkers + "); do\n" +
+            "    wait ${PIDS[$((WORKER - 1))]} || EXIT_CODE=1\n" +
+            "    cat test-reports/phpunit-${WORKER}.log\n" +
+            "done\n" +
+            "phpScript Build/Scripts/mergeJunitReports.php test-reports/phpunit.xml $(seq -f \"test-reports/phpunit-%g.xml\" 1 " + this.numberOfUnitTestWorkers + ") || EXIT_CODE=1\n" +
+            "exit ${EXIT_CODE}\n";
+    }
+
+    /**
+     * Bash lines running one functional chunk with phpunit, expects a phpunit()
+     * function reading WORKER_SUFFIX and REDIS_DATABASE. With numberOfFunctionalTestWorkers
+     * greater than one, the split task created numberOfFunctionalTestWorkers
+     * configurations per job and each of them is executed by its own phpunit
+     * process in parallel. Workers are isolated by database name suffix _w<n>,
+     * by redis database number and by memcached key prefix. The worker reports
+     * are merged into test-reports/phpunit.xml.
+     *
+     * @param int chunk Number of the job, starting with 1
+     * @param String options Additional phpunit options
+     */
+    protected String getScriptTaskPhpunitFunctional(int chunk, String options) {
+        String phpunitOptions = options.isEmpty() ? "" : options + " ";
+        if (this.numberOfFunctionalTestWorkers <= 1) {
+            return
+                "WORKER_SUFFIX=\"\"\n" +
+                "REDIS_DATABASE=0\n" +
+                "phpunit " + phpunitOptions + "--log-junit test-reports/phpunit.xml -c " + this.testingFrameworkBuildPath + "FunctionalTests-Job-" + chunk + ".xml";
+        }
+        return
+            "function phpScript() {\n" +
+            "    docker exec \\\n" +
+            "        -u ${HOST_UID} \\\n" +
+            "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+            "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini $*\"\n" +
+            "}\n" +
+            "\n" +
+            "mkdir -p test-reports\n" +
+            "PIDS=()\n" +
+            "for WORKER in $(seq 1 " + this.numberOfFunctionalTestWorkers + "); do\n" +
+            "    CONFIGURATION=" + this.testingFrameworkBuildPath + "FunctionalTests-Job-$((" + ((chunk - 1) * this.numberOfFunctionalTestWorkers) + " + WORKER)).xml\n" +
+            "    WORKER_SUFFIX=_w${WORKER}\n" +
+            "    REDIS_DATABASE=$(((WORKER - 1) * 2))\n" +
+            "    echo \"Worker ${WORKER}: -c ${CONFIGURATION}, database suffix ${WORKER_SUFFIX}, redis database ${REDIS_DATABASE}\"\n" +
+            "    phpunit " + phpunitOptions + "--log-junit test-reports/phpunit-${WORKER}.xml -c ${CONFIGURATION} > test-reports/phpunit-${WORKER}.log 2>&1 &\n" +
+            "    PIDS+=($!)\n" +
+            "done\n" +
+            "EXIT_CODE=0\n" +
+            "for WORKER in $(seq 1 " + this.numberOfFunctionalTestWorkers + "); do\n" +
+            "    wait ${PIDS[$((WORKER - 1))]} || EXIT_CODE=1\n" +
+            "    cat test-reports/phpunit-${WORKER}.log\n" +
+            "done\n" +
+            "phpScript Build/Scripts/mergeJunitReports.php test-reports/phpunit.xml $(seq -f \"test-reports/phpunit-%g.xml\" 1 " + this.numberOfFunctionalTestWorkers + ") || EXIT_CODE=1\n" +
+            "exit ${EXIT_CODE}\n";
     }
 
     /**
@@ -1709,42 +3028,265 @@ abstract public class AbstractCoreSpec {
      *
      * @param int numberOfJobs
      * @param String requirementIdentifier
+     * @param String testDurationsIdentifier
      */
-    protected Task getTaskSplitFunctionalJobs(int numberOfJobs, String requirementIdentifier) {
-        return new ScriptTask()
-            .description("Create list of test files to execute per job")
+    protected Task getTaskSplitFunctionalJobs(int numberOfJobs, String requirementIdentifier, String testDurationsIdentifier) {
+        return this.getShared("getTaskSplitFunctionalJobs:" + numberOfJobs + ":" + requirementIdentifier + ":" + testDurationsIdentifier, () -> {
+            if (this.useDurationBasedFunctionalSplit) {
+                return new ScriptTask()
+                    .description("Create list of test files to execute per job by duration")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function splitTestsByDuration() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini ./Build/Scripts/splitTestsByDuration.php $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "splitTestsByDuration functional " + numberOfJobs + " --durations=test-durations/" + testDurationsIdentifier + " -v"
+                    );
+            }
+            return new ScriptTask()
+                .description("Create list of test files to execute per job")
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    this.getScriptTaskBashInlineBody() +
+                    "function splitFunctionalTests() {\n" +
+                    "    docker exec \\\n" +
+                    "        -u ${HOST_UID} \\\n" +
+                    "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                    "        bin/bash -c \"cd ${PWD}; ./" + this.testingFrameworkBuildPath + "Scripts/splitFunctionalTests.php $*\"\n" +
+                    "}\n" +
+                    "\n" +
+                    "splitFunctionalTests " + numberOfJobs + " -v"
+                );
+        });
+    }
+
+    /**
+     * Final task storing the JUnit report of this job in a docker volume of
+     * the agent. This is the duration history collected by getJobCollectTestDurations().
+     * Only the latest 100 reports per identifier are kept.
+     *
+     * @param String testDurationsIdentifier
+     */
+    protected Task getTaskStoreTestDurations(String testDurationsIdentifier) {
+        return this.getTaskStoreTestDurations(testDurationsIdentifier, "test-reports/phpunit.xml");
+    }
+
+    /**
+     * Final task storing given JUnit report of this job in the duration history
+     *
+     * @param String testDurationsIdentifier
+     * @param String report
+     */
+    protected Task getTaskStoreTestDurations(String testDurationsIdentifier, String report) {
+        return this.getShared("getTaskStoreTestDurations:" + testDurationsIdentifier + ":" + report, () -> new ScriptTask()
+            .description("Store test durations in agent volume")
             .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
             .inlineBody(
                 this.getScriptTaskBashInlineBody() +
-                "function splitFunctionalTests() {\n" +
-                "    docker run \\\n" +
-                "        -u ${HOST_UID} \\\n" +
-                "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
-                "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
-                "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
-                "        --rm \\\n" +
-                "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-                "        bin/bash -c \"cd ${PWD}; ./" + this.testingFrameworkBuildPath + "Scripts/splitFunctionalTests.php $*\"\n" +
-                "}\n" +
-                "\n" +
-                "splitFunctionalTests " + numberOfJobs + " -v"
-            );
+                "if [ ! -f " + report + " ]; then\n" +
+                "    exit 0\n" +
+                "fi\n" +
+                "docker run \\\n" +
+                "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+                "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_test-durations:/test-durations \\\n" +
+                "    --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
+                "    --rm \\\n" +
+                "    alpine:3.8 \\\n" +
+                "    /bin/sh -c \"" +
+                    "mkdir -p /test-durations/" + testDurationsIdentifier + " && " +
+                    "cp ${PWD}/" + report + " /test-durations/" + testDurationsIdentifier + "/${bamboo.buildResultKey}.tmp && " +
+                    "mv /test-durations/" + testDurationsIdentifier + "/${bamboo.buildResultKey}.tmp /test-durations/" + testDurationsIdentifier + "/${bamboo.buildResultKey}.xml && " +
+                    "cd /test-durations/" + testDurationsIdentifier + " && " +
+                    "ls -1t *.xml | tail -n +101 | xargs rm -f" +
+                "\"\n" +
+                "exit 0\n"
+            ));
+    }
+
+    /**
+     * Final task checking the JUnit reports of this job for tests and suites
+     * that became slower than in previous runs with core.TestDurationRegressionDetector.
+     * The class is compiled from the workspace, it has no dependencies besides the JDK.
+     * With testDurationHistoryUrl the history of the job is fetched from the http store,
+     * updated and put back even if the detector fails, so all agents share one history
+     * per plan. Otherwise it is kept per job in a docker volume of the agent, which
+     * only reaches enough samples if the job runs on the same agents most of the time.
+     */
+    protected Task getTaskDetectTestDurationRegressions() {
+        String historyVolume = "${BAMBOO_COMPOSE_PROJECT_NAME}_test-duration-history";
+        String historyFile = "/srv/test-duration-history/${bamboo.shortJobKey}.bin";
+        String historyMount = "    -v " + historyVolume + ":/srv/test-duration-history/ \\\n";
+        String historyPrepare =
+            "docker volume create " + historyVolume + " > /dev/null\n" +
+            "docker run --rm -v " + historyVolume + ":/srv/test-duration-history/ alpine:3.8 chown ${HOST_UID} /srv/test-duration-history\n";
+        String historyStore = "exit ${EXIT_CODE}\n";
+        if (!this.testDurationHistoryUrl.isEmpty()) {
+            String historyUrl = this.testDurationHistoryUrl + "/${bamboo.planKey}-${bamboo.shortJobKey}.bin";
+            historyFile = "${PWD}/test-duration-history.bin";
+            historyMount = "";
+            historyPrepare =
+                "rm -f test-duration-history.bin\n" +
+                "curl -fsS -o test-duration-history.bin " + historyUrl + " || rm -f test-duration-history.bin\n";
+            historyStore =
+                "if [ -s test-duration-history.bin ]; then\n" +
+                "    curl -fsS -T test-duration-history.bin " + historyUrl + "\n" +
+                "fi\n" +
+                "exit ${EXIT_CODE}\n";
+        }
+        String body =
+            "REPORTS=\"\"\n" +
+            "for REPORT in test-reports/phpunit.xml typo3temp/var/tests/AcceptanceReports/reports.xml typo3temp/var/tests/*.xml; do\n" +
+            "    if [ -f ${REPORT} ]; then\n" +
+            "        REPORTS=\"${REPORTS} ${REPORT}\"\n" +
+            "    fi\n" +
+            "done\n" +
+            "if [ -z \"${REPORTS}\" ]; then\n" +
+            "    exit 0\n" +
+            "fi\n" +
+            "\n" +
+            historyPrepare +
+            "docker run \\\n" +
+            "    -u ${HOST_UID} \\\n" +
+            "    -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+            historyMount +
+            "    --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
+            "    --rm \\\n" +
+            "    openjdk:8-jdk-alpine \\\n" +
+            "    /bin/sh -c \"cd ${PWD}; " +
+                "mkdir -p /tmp/detector && " +
+                "javac -d /tmp/detector Build/bamboo/src/main/java/core/TestDurationRegressionDetector.java && " +
+                "java -cp /tmp/detector " +
+                    "-Dregressions.mode=" + this.testDurationRegressionMode + " " +
+                    "-Dregressions.budget=" + this.testDurationRegressionBudget + " " +
+                    "core.TestDurationRegressionDetector " + historyFile + " ${REPORTS}" +
+            "\"\n" +
+            "EXIT_CODE=$?\n" +
+            historyStore;
+        return this.getShared("getTaskDetectTestDurationRegressions", () -> new ScriptTask()
+            .description("Detect test duration regressions")
+            .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+            .inlineBody(
+                this.getScriptTaskBashInlineBody() +
+                body
+            ));
+    }
+
+    /**
+     * True if given job parses JUnit reports
+     *
+     * @param Job job
+     */
+    protected boolean hasJunitTestParser(Job job) {
+        JobProperties jobProperties = EntityPropertiesBuilders.build(job);
+        ArrayList<TaskProperties> tasks = new ArrayList<TaskProperties>(jobProperties.getTasks());
+        tasks.addAll(jobProperties.getFinalTasks());
+        for (TaskProperties task : tasks) {
+            if (task instanceof TestParserTaskProperties) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Subscription to the test durations of getJobCollectTestDurations(). The
+     * artifact is not required and may be empty, the split tasks report whether
+     * they split by duration or by file count.
+     */
+    protected ArtifactSubscription getArtifactSubscriptionTestDurations() {
+        return this.getShared("getArtifactSubscriptionTestDurations", () -> new ArtifactSubscription()
+            .artifact("Test durations")
+            .destination("test-durations"));
+    }
+
+    /**
+     * Object created by given factory on first call with given key, the same
+     * instance on all later calls. Used by methods creating tasks and configurations
+     * that are added to many jobs: the builders are not changed after creation,
+     * so jobs can share them. The key consists of method name and arguments.
+     *
+     * @param String key
+     * @param Supplier<T> factory
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T getShared(String key, Supplier<T> factory) {
+        // No computeIfAbsent(), factories create shared objects themselves
+        Object shared = this.sharedObjects.get(key);
+        if (shared == null) {
+            shared = factory.get();
+            this.sharedObjects.put(key, shared);
+        }
+        return (T) shared;
+    }
+
+    /**
+     * Subscriptions to the workspace snapshot of getJobWorkspaceSnapshot()
+     * unpacked by getTaskCheckoutWorkspace(), none if snapshots are disabled.
+     */
+    protected ArtifactSubscription[] getArtifactSubscriptionsWorkspace() {
+        if (!this.useWorkspaceSnapshot) {
+            return new ArtifactSubscription[0];
+        }
+        return new ArtifactSubscription[]{
+            this.getShared("getArtifactSubscriptionsWorkspace", () -> new ArtifactSubscription()
+                .artifact("Workspace snapshot")
+                .destination(""))
+        };
+    }
+
+    /**
+     * Subscription to the node_modules of getJobYarnArtifact()
+     * unpacked by getTaskYarnArtifact()
+     */
+    protected ArtifactSubscription getArtifactSubscriptionYarn() {
+        return this.getShared("getArtifactSubscriptionYarn", () -> new ArtifactSubscription()
+            .artifact("Node modules")
+            .destination(""));
+    }
+
+    /**
+     * Subscription to the composer dependencies of getJobComposerArtifact()
+     * unpacked by getTaskComposerArtifact()
+     *
+     * @param String requirementIdentifier
+     * @param String composerMode One of Install, UpdateMax, UpdateMin
+     */
+    protected ArtifactSubscription getArtifactSubscriptionComposer(String requirementIdentifier, String composerMode) {
+        return this.getShared("getArtifactSubscriptionComposer:" + requirementIdentifier + ":" + composerMode, () -> new ArtifactSubscription()
+            .artifact(this.getComposerArtifactName(requirementIdentifier, composerMode))
+            .destination(""));
+    }
+
+    /**
+     * Subscription to the instance and database of getJobAcceptanceTestSnapshot()
+     * restored by getTaskRestoreAcceptanceSnapshot()
+     */
+    protected ArtifactSubscription getArtifactSubscriptionAcceptanceSnapshot() {
+        return this.getShared("getArtifactSubscriptionAcceptanceSnapshot", () -> new ArtifactSubscription()
+            .artifact("Acceptance snapshot")
+            .destination("acceptance-snapshot"));
     }
 
     /**
      * Requirement for docker 1.0 set by bamboo-agents
      */
     protected Requirement getRequirementDocker10() {
-        return new Requirement("system.hasDocker")
+        return this.getShared("getRequirementDocker10", () -> new Requirement("system.hasDocker")
             .matchValue("1.0")
-            .matchType(Requirement.MatchType.EQUALS);
+            .matchType(Requirement.MatchType.EQUALS));
     }
 
     /**
      * A bash header for script tasks forking a bash if needed
      */
     protected String getScriptTaskBashInlineBody() {
-        return
+        boolean usePinnedImages = this.useWorkspaceSnapshot && this.usePinnedDockerImages;
+        return this.getShared("getScriptTaskBashInlineBody:" + this.useChangeImpactAnalysis + ":" + this.useResultCache + ":" + usePinnedImages, () ->
             "#!/bin/bash\n" +
             "\n" +
             "if [ \"$(ps -p \"$$\" -o comm=)\" != \"bash\" ]; then\n" +
@@ -1752,29 +3294,327 @@ abstract public class AbstractCoreSpec {
             "    exit \"$?\"\n" +
             "fi\n" +
             "\n" +
+            this.getScriptTaskRecordTiming() +
+            (this.useChangeImpactAnalysis ? this.getScriptTaskSkipUnaffected() : "") +
+            (this.useResultCache ? this.getScriptTaskSkipCachedResult() : "") +
+            (usePinnedImages ?
+                "if [ -f docker-images.env ]; then\n" +
+                "    source docker-images.env\n" +
+                "fi\n" +
+                "\n" : ""
+            ) +
             "set -x\n" +
+            "\n"
+        );
+    }
+
+    /**
+     * Ends a script task early if getJobChangeImpactAnalysis() marked the job as
+     * unaffected by the patch set. Puts the skipped test report to the locations
+     * the test parser tasks read, so the job is recorded as "skipped: unaffected".
+     */
+    protected String getScriptTaskSkipUnaffected() {
+        return
+            "if [ -f change-analysis/unaffected-${bamboo.shortJobKey} ]; then\n" +
+            "    mkdir -p test-reports typo3temp/var/tests/AcceptanceReports\n" +
+            "    cp change-analysis/unaffected.xml test-reports/phpunit.xml\n" +
+            "    cp change-analysis/unaffected.xml typo3temp/var/tests/AcceptanceReports/reports.xml\n" +
+            "    cp change-analysis/unaffected.xml typo3temp/var/tests/unaffected.xml\n" +
+            "    echo \"skipped: unaffected\"\n" +
+            "    exit 0\n" +
+            "fi\n" +
+            "\n";
+    }
+
+    /**
+     * Records start, end and exit code of each script task in task-timings/records.txt.
+     * Times are seconds since boot of the agent, which are monotonic.
+     * See addTaskTimings().
+     */
+    protected String getScriptTaskRecordTiming() {
+        return
+            "TASK_TIMINGS=${PWD}/task-timings\n" +
+            "mkdir -p ${TASK_TIMINGS}\n" +
+            "read TASK_START TASK_UPTIME < /proc/uptime\n" +
+            "trap 'EXIT_CODE=$?; read TASK_END TASK_UPTIME < /proc/uptime; echo \"${TASK_START} ${TASK_END} ${EXIT_CODE}\" >> ${TASK_TIMINGS}/records.txt' EXIT\n" +
+            "\n";
+    }
+
+    /**
+     * Add a final task to each given job writing the timings recorded by its
+     * script tasks to task-timings.json, published as shared artifact for
+     * getJobTaskTimingsReport().
+     *
+     * The records do not know their task, they are mapped to the task descriptions
+     * in execution order: Regular tasks until the first failed one, then final tasks.
+     * Must be called after all other tasks have been added to the jobs.
+     *
+     * @param ArrayList<Job> jobs
+     * @return Names of the task timings artifacts
+     */
+    protected ArrayList<String> addTaskTimings(ArrayList<Job> jobs) {
+        ArrayList<String> artifactNames = new ArrayList<String>();
+        for (Job job : jobs) {
+            JobProperties jobProperties = EntityPropertiesBuilders.build(job);
+            String tasks = this.getTaskTimingsDescriptions("R", jobProperties.getTasks()) +
+                this.getTaskTimingsDescriptions("F", jobProperties.getFinalTasks());
+            if (tasks.isEmpty()) {
+                continue;
+            }
+            String jobKey = jobProperties.getKey().getKey();
+            String artifactName = "Task timings " + jobKey;
+            job.finalTasks(new ScriptTask()
+                .description("Write task timings")
+                .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                .inlineBody(
+                    "#!/bin/sh\n" +
+                    "\n" +
+                    "mkdir -p task-timings\n" +
+                    "touch task-timings/records.txt\n" +
+                    "cat > task-timings/tasks.txt << 'EOF'\n" +
+                    tasks +
+                    "EOF\n" +
+                    "awk \\\n" +
+                    "    -v plan=\"${bamboo.planKey}\" \\\n" +
+                    "    -v build=\"${bamboo.buildNumber}\" \\\n" +
+                    "    -v job=\"" + jobKey + "\" \\\n" +
+                    "    -v name=\"" + jobProperties.getName() + "\" \\\n" +
+                    "    -v db=\"" + this.getTaskTimingsDatabase(jobKey) + "\" \\\n" +
+                    "    -v php=\"" + this.getTaskTimingsPhpVersion(jobKey) + "\" \\\n" +
+                    "    '\n" +
+                    "    FNR == NR { if ($1 == \"R\") regularTasks[++regularCount] = $2; else finalTasks[++finalCount] = $2; next }\n" +
+                    "    {\n" +
+                    "        split($0, record, \" \")\n" +
+                    "        if (!inFinal && regularIndex < regularCount) {\n" +
+                    "            description = regularTasks[++regularIndex]; type = \"regular\"\n" +
+                    "            if (record[3] != 0 || regularIndex == regularCount) inFinal = 1\n" +
+                    "        } else if (finalIndex < finalCount) {\n" +
+                    "            description = finalTasks[++finalIndex]; type = \"final\"\n" +
+                    "        } else {\n" +
+                    "            next\n" +
+                    "        }\n" +
+                    "        entries = entries (entries == \"\" ? \"\" : \",\") sprintf(\"\\n    {\\\"description\\\": \\\"%s\\\", \\\"type\\\": \\\"%s\\\", \\\"start\\\": %s, \\\"end\\\": %s, \\\"durationMs\\\": %d, \\\"exitCode\\\": %s}\", description, type, record[1], record[2], (record[2] - record[1]) * 1000, record[3])\n" +
+                    "    }\n" +
+                    "    END { printf \"{\\\"plan\\\": \\\"%s\\\", \\\"build\\\": \\\"%s\\\", \\\"job\\\": \\\"%s\\\", \\\"name\\\": \\\"%s\\\", \\\"db\\\": \\\"%s\\\", \\\"php\\\": \\\"%s\\\", \\\"tasks\\\": [%s\\n]}\\n\", plan, build, job, name, db, php, entries }\n" +
+                    "    ' FS='\\t' task-timings/tasks.txt task-timings/records.txt > task-timings/task-timings.json\n" +
+                    "cat task-timings/task-timings.json\n"
+                )
+            );
+            job.artifacts(new Artifact()
+                .name(artifactName)
+                .copyPattern("task-timings.json")
+                .location("task-timings")
+                .shared(true)
+            );
+            artifactNames.add(artifactName);
+        }
+        return artifactNames;
+    }
+
+    /**
+     * Lines "<prefix><tab><description>" of all script tasks recording their timing
+     *
+     * @param String prefix R for regular, F for final tasks
+     * @param List<TaskProperties> tasks
+     */
+    protected String getTaskTimingsDescriptions(String prefix, List<TaskProperties> tasks) {
+        String descriptions = "";
+        for (TaskProperties task : tasks) {
+            if (task instanceof ScriptTaskProperties && ((ScriptTaskProperties) task).getBody().contains("TASK_TIMINGS=")) {
+                String description = task.getDescription() == null ? "Script" : task.getDescription();
+                descriptions = descriptions + prefix + "\t" + description.replace("\\", "\\\\").replace("\"", "\\\"") + "\n";
+            }
+        }
+        return descriptions;
+    }
+
+    /**
+     * Database of a job for the task timings report, derived from the job key
+     *
+     * @param String jobKey
+     */
+    protected String getTaskTimingsDatabase(String jobKey) {
+        if (jobKey.startsWith("ACINST")) {
+            return "mysql+pgsql+sqlite";
+        }
+        if (jobKey.startsWith("ACMY") || jobKey.startsWith("FMY")) {
+            return "mysql";
+        }
+        if (jobKey.startsWith("FPG")) {
+            return "pgsql";
+        }
+        if (jobKey.startsWith("FSL")) {
+            return "sqlite";
+        }
+        if (jobKey.startsWith("FMS")) {
+            return "mssql";
+        }
+        return "none";
+    }
+
+    /**
+     * PHP version of a job for the task timings report, derived from the job key
+     *
+     * @param String jobKey
+     */
+    protected String getTaskTimingsPhpVersion(String jobKey) {
+        for (String identifier : this.dockerImageIdentifiers) {
+            if (identifier.startsWith("PHP") && jobKey.contains(identifier)) {
+                return identifier;
+            }
+        }
+        return "none";
+    }
+
+    /**
+     * Job aggregating the task timings of all jobs of a plan run by task type,
+     * database and PHP version with Build/Scripts/aggregateTaskTimings.php.
+     * Only runs if all previous stages succeeded, see the class comment.
+     *
+     * @param ArrayList<String> artifactNames Returned by addTaskTimings()
+     * @param String requirementIdentifier
+     * @param Boolean isSecurity
+     */
+    protected Job getJobTaskTimingsReport(ArrayList<String> artifactNames, String requirementIdentifier, Boolean isSecurity) {
+        ArrayList<ArtifactSubscription> subscriptions = new ArrayList<ArtifactSubscription>();
+        for (String artifactName : artifactNames) {
+            subscriptions.add(new ArtifactSubscription()
+                .artifact(artifactName)
+                .destination("task-timings/" + artifactName.substring("Task timings ".length()))
+            );
+        }
+        return new Job("Task timings", new BambooKey("TIMINGS"))
+            .description("Aggregate task timings of all jobs")
+            .pluginConfigurations(this.getDefaultJobPluginConfiguration())
+            .tasks(
+                this.getTaskCheckoutWorkspace(),
+                this.getTaskVerifyWorkspace(isSecurity),
+                this.getTaskStopDanglingContainers(),
+                this.getTaskPullDockerImages(),
+                this.getTaskStartRunner(requirementIdentifier),
+                new ScriptTask()
+                    .description("Aggregate task timings")
+                    .interpreter(ScriptTaskProperties.Interpreter.BINSH_OR_CMDEXE)
+                    .inlineBody(
+                        this.getScriptTaskBashInlineBody() +
+                        "function aggregateTaskTimings() {\n" +
+                        "    docker exec \\\n" +
+                        "        -u ${HOST_UID} \\\n" +
+                        "        ${BAMBOO_COMPOSE_PROJECT_NAME}sib_runner \\\n" +
+                        "        bin/bash -c \"cd ${PWD}; php -n -c /etc/php/cli-no-xdebug/php.ini Build/Scripts/aggregateTaskTimings.php $*\"\n" +
+                        "}\n" +
+                        "\n" +
+                        "aggregateTaskTimings task-timings task-timings-report.json"
+                    )
+            )
+            .artifacts(new Artifact()
+                .name("Task timings report")
+                .copyPattern("task-timings-report.json")
+                .shared(false)
+            )
+            .artifactSubscriptions(this.getArtifactSubscriptionsWorkspace())
+            .artifactSubscriptions(subscriptions.toArray(new ArtifactSubscription[subscriptions.size()]))
+            .finalTasks(
+                this.getTaskStopRunner()
+            )
+            .requirements(
+                this.getRequirementDocker10()
+            )
+            .cleanWorkingDirectory(true);
+    }
+
+    /**
+     * Ends a script task early if getScriptTaskResultCacheLookup() found a green
+     * result of a run with equal inputs. Restores the cached test reports, so
+     * the test parser tasks record them again.
+     */
+    protected String getScriptTaskSkipCachedResult() {
+        return
+            "if [ -f result-cache/hit ]; then\n" +
+            "    tar -xzf result-cache/hit.tar.gz\n" +
+            "    echo \"skipped: cached green result $(cat result-cache/fingerprint)\"\n" +
+            "    exit 0\n" +
+            "fi\n" +
             "\n";
     }
 
+    /**
+     * Bash lines writing the .env file of Build/testing-docker/bamboo/docker-compose.yml,
+     * adds the compose files of selected ephemeral database profiles.
+     */
+    protected String getScriptTaskDockerComposeEnvironment() {
+        String composeFiles = "docker-compose.yml";
+        for (String profile : this.ephemeralDatabaseProfiles) {
+            composeFiles = composeFiles + ":docker-compose.ephemeral-" + profile + ".yml";
+        }
+        return
+            "echo COMPOSE_PROJECT_NAME=${BAMBOO_COMPOSE_PROJECT_NAME}sib > .env\n" +
+            "echo COMPOSE_FILE=" + composeFiles + " >> .env\n" +
+            "echo MARIADB_BUFFER_POOL_MB=" + (this.databaseMemoryMb / 2) + " >> .env\n" +
+            "echo POSTGRES_SHARED_BUFFERS_MB=" + (this.databaseMemoryMb / 4) + " >> .env\n" +
+            "echo MSSQL_MEMORY_LIMIT_MB=" + Math.max(2048, this.databaseMemoryMb) + " >> .env\n";
+    }
+
     /**
      * A bash function aliasing 'composer' as docker command
      *
      * @param String requirementIdentifier
      */
     protected String getScriptTaskComposer(String requirementIdentifier) {
+        String cacheVolume = "${BAMBOO_COMPOSE_PROJECT_NAME}_composer-cache-" + requirementIdentifier.toLowerCase();
         return
+            this.getScriptTaskComposerCache(cacheVolume) +
             "function composer() {\n" +
             "    docker run \\\n" +
             "        -u ${HOST_UID} \\\n" +
             "        -v /bamboo-data/${BAMBOO_COMPOSE_PROJECT_NAME}/passwd:/etc/passwd \\\n" +
             "        -v ${BAMBOO_COMPOSE_PROJECT_NAME}_bamboo-data:/srv/bamboo/xml-data/build-dir/ \\\n" +
+            "        -v " + cacheVolume + ":/srv/composer-cache/ \\\n" +
             "        -e COMPOSER_ROOT_VERSION=${COMPOSER_ROOT_VERSION} \\\n" +
+            "        -e COMPOSER_CACHE_DIR=/srv/composer-cache \\\n" +
             "        -e HOME=${HOME} \\\n" +
             "        --name ${BAMBOO_COMPOSE_PROJECT_NAME}sib_adhoc \\\n" +
             "        --rm \\\n" +
-            "        typo3gmbh/" + requirementIdentifier.toLowerCase() + ":latest \\\n" +
-            "        bin/bash -c \"cd ${PWD}; composer $*\"\n" +
+            "        " + this.getDockerImage(requirementIdentifier) + " \\\n" +
+            "        bin/bash -c \"cd ${PWD}; set -o pipefail; flock -s /srv/composer-cache/.lock composer $* 2>&1 | tee /tmp/composer.log; EXIT_CODE=\\$?; echo composer cache: \\$(grep -c 'Loading from cache' /tmp/composer.log) hits, \\$(grep -c 'Downloading' /tmp/composer.log) misses; exit \\$EXIT_CODE\"\n" +
+            "    EXIT_CODE=$?\n" +
+            "    composerCacheEvict\n" +
+            "    return ${EXIT_CODE}\n" +
+            "}\n" +
+            "\n";
+    }
+
+    /**
+     * Bash functions preparing and evicting the agent local composer cache volume
+     * of given PHP version. The volume is created on first use and owned by the
+     * build user. composer() holds a shared lock while running, eviction takes the
+     * exclusive lock, so no files vanish while composer reads them. Files not used
+     * for composerCacheMaxAgeDays are removed first, then the least recently used
+     * files until the cache is smaller than composerCacheMaxSizeMb. Usage is the
+     * access time, composer only reads cached files and never changes their mtime.
+     * With the default relatime mount option it is updated at least once a day.
+     *
+     * @param String cacheVolume
+     */
+    protected String getScriptTaskComposerCache(String cacheVolume) {
+        return
+            "function composerCacheInit() {\n" +
+            "    docker volume create " + cacheVolume + " > /dev/null\n" +
+            "    docker run --rm -v " + cacheVolume + ":/srv/composer-cache/ alpine:3.8 \\\n" +
+            "        sh -c \"touch /srv/composer-cache/.lock && chown -R ${HOST_UID} /srv/composer-cache\"\n" +
+            "}\n" +
+            "\n" +
+            "function composerCacheEvict() {\n" +
+            "    docker run --rm -v " + cacheVolume + ":/srv/composer-cache/ alpine:3.8 \\\n" +
+            "        sh -c \"cd /srv/composer-cache && flock -x .lock sh -c '" +
+                "find . -type f ! -name .lock -atime +" + this.composerCacheMaxAgeDays + " -delete; " +
+                "while [ \\$(du -sm . | cut -f1) -gt " + this.composerCacheMaxSizeMb + " ]; do " +
+                    "find . -type f ! -name .lock -exec stat -c \\\"%X %n\\\" {} + | sort -n | head -n 100 | cut -d \\\" \\\" -f 2- | xargs -r rm -f; " +
+                "done; " +
+                "echo composer cache: \\$(du -sm . | cut -f1) MB'\"\n" +
             "}\n" +
+            "\n" +
+            "composerCacheInit\n" +
             "\n";
     }
 }
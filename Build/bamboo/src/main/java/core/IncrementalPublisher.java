@@ -0,0 +1,263 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import com.atlassian.bamboo.specs.api.builders.RootEntityPropertiesBuilder;
+import com.atlassian.bamboo.specs.api.builders.permission.PlanPermissions;
+import com.atlassian.bamboo.specs.api.builders.plan.Plan;
+import com.atlassian.bamboo.specs.api.model.plan.JobProperties;
+import com.atlassian.bamboo.specs.api.model.plan.PlanProperties;
+import com.atlassian.bamboo.specs.api.model.plan.StageProperties;
+import com.atlassian.bamboo.specs.api.util.EntityPropertiesBuilders;
+import com.atlassian.bamboo.specs.util.BambooServer;
+import com.atlassian.bamboo.specs.util.BambooSpecSerializer;
+
+/**
+ * Publish a plan and its permissions only if they changed since the last
+ * successful publish from this machine.
+ *
+ * Plan and permissions are fingerprinted by the sha256 of their YAML form,
+ * each job additionally by the sha256 of a canonical form of its properties.
+ * The fingerprints of the last successful publish are stored in a properties
+ * file per plan in a local directory, the server is not asked.
+ *
+ * Modes, set with -Dpublish.mode=:
+ * - changed: Publish changed plans and permissions only (default)
+ * - report: Publish everything, print which jobs changed
+ * - dry-run: Publish nothing, print which jobs changed
+ * - always: Publish everything
+ *
+ * The store directory is set with -Dpublish.fingerprints=, default is
+ * .publish-fingerprints in the working directory. Remove it, or use mode
+ * "always", after plans were changed in the Bamboo UI.
+ */
+public class IncrementalPublisher {
+
+    protected static String defaultMode = "changed";
+    protected static String defaultFingerprintDirectory = ".publish-fingerprints";
+
+    protected String bambooServerName;
+    protected String mode;
+    protected File fingerprintDirectory;
+
+    /**
+     * Created on first publish only, see publishEntity()
+     */
+    protected BambooServer bambooServer;
+
+    /**
+     * @param String bambooServerName
+     * @param String mode One of changed, report, dry-run, always
+     * @param File fingerprintDirectory
+     */
+    public IncrementalPublisher(String bambooServerName, String mode, File fingerprintDirectory) {
+        if (!mode.equals("changed") && !mode.equals("report") && !mode.equals("dry-run") && !mode.equals("always")) {
+            throw new IllegalArgumentException("Unknown publish mode " + mode + ", use one of changed, report, dry-run, always");
+        }
+        this.bambooServerName = bambooServerName;
+        this.mode = mode;
+        this.fingerprintDirectory = fingerprintDirectory;
+    }
+
+    /**
+     * Publisher configured by system properties publish.mode and publish.fingerprints
+     *
+     * @param String bambooServerName
+     */
+    public static IncrementalPublisher fromSystemProperties(String bambooServerName) {
+        return new IncrementalPublisher(
+            bambooServerName,
+            System.getProperty("publish.mode", defaultMode),
+            new File(System.getProperty("publish.fingerprints", defaultFingerprintDirectory))
+        );
+    }
+
+    /**
+     * Publish plan and permissions according to mode, store the new
+     * fingerprints after a successful publish.
+     *
+     * @param Plan plan
+     * @param PlanPermissions permissions
+     * @return List of changes, empty if nothing changed
+     */
+    public ArrayList<String> publish(Plan plan, PlanPermissions permissions) throws IOException {
+        PlanProperties planProperties = EntityPropertiesBuilders.build(plan);
+        String storeName = planProperties.getProject().getKey().getKey() + "-" + planProperties.getKey().getKey();
+
+        TreeMap<String, String> current = this.getFingerprints(plan, planProperties, permissions);
+        TreeMap<String, String> previous = this.readFingerprints(storeName);
+        ArrayList<String> changes = this.getChanges(previous, current);
+
+        System.out.println("Plan " + storeName + ": " + (changes.isEmpty() ? "unchanged" : changes.size() + " changes"));
+        if (!this.mode.equals("always")) {
+            for (String change : changes) {
+                System.out.println("    " + change);
+            }
+        }
+        if (this.mode.equals("dry-run")) {
+            return changes;
+        }
+
+        boolean planChanged = !this.isUnchanged(previous, current, "plan");
+        boolean permissionsChanged = !this.isUnchanged(previous, current, "permissions");
+        if (planChanged || !this.mode.equals("changed")) {
+            this.publishEntity(plan);
+        } else {
+            System.out.println("Skipped unchanged plan " + storeName);
+        }
+        if (permissionsChanged || !this.mode.equals("changed")) {
+            this.publishEntity(permissions);
+        } else {
+            System.out.println("Skipped unchanged permissions of " + storeName);
+        }
+        this.writeFingerprints(storeName, current);
+        return changes;
+    }
+
+    /**
+     * Fingerprints of plan, permissions and each job. Job keys are prefixed
+     * with "job.", the job name is stored with prefix "name." to report it.
+     *
+     * @param Plan plan
+     * @param PlanProperties planProperties
+     * @param PlanPermissions permissions
+     */
+    protected TreeMap<String, String> getFingerprints(Plan plan, PlanProperties planProperties, PlanPermissions permissions) {
+        TreeMap<String, String> fingerprints = new TreeMap<String, String>();
+        fingerprints.put("plan", SpecFingerprint.sha256(BambooSpecSerializer.dump(plan)));
+        fingerprints.put("permissions", SpecFingerprint.sha256(BambooSpecSerializer.dump(permissions)));
+        for (StageProperties stage : planProperties.getStages()) {
+            for (JobProperties job : stage.getJobs()) {
+                String jobKey = job.getKey().getKey();
+                fingerprints.put("job." + jobKey, SpecFingerprint.sha256(stage.getName() + "\n" + SpecFingerprint.canonical(job)));
+                fingerprints.put("name." + jobKey, job.getName());
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Per job diff between two fingerprint sets
+     *
+     * @param TreeMap<String, String> previous
+     * @param TreeMap<String, String> current
+     */
+    protected ArrayList<String> getChanges(TreeMap<String, String> previous, TreeMap<String, String> current) {
+        ArrayList<String> changes = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (!entry.getKey().startsWith("job.")) {
+                continue;
+            }
+            String jobKey = entry.getKey().substring(4);
+            String description = jobKey + " (" + current.get("name." + jobKey) + ")";
+            if (!previous.containsKey(entry.getKey())) {
+                changes.add("added job " + description);
+            } else if (!previous.get(entry.getKey()).equals(entry.getValue())) {
+                changes.add("changed job " + description);
+            }
+        }
+        for (String key : previous.keySet()) {
+            if (key.startsWith("job.") && !current.containsKey(key)) {
+                String jobKey = key.substring(4);
+                changes.add("removed job " + jobKey + " (" + previous.get("name." + jobKey) + ")");
+            }
+        }
+        if (changes.isEmpty() && !this.isUnchanged(previous, current, "plan")) {
+            changes.add("changed plan settings");
+        }
+        if (!this.isUnchanged(previous, current, "permissions")) {
+            changes.add("changed permissions");
+        }
+        return changes;
+    }
+
+    /**
+     * @param TreeMap<String, String> previous
+     * @param TreeMap<String, String> current
+     * @param String key
+     */
+    protected boolean isUnchanged(TreeMap<String, String> previous, TreeMap<String, String> current, String key) {
+        return previous.containsKey(key) && previous.get(key).equals(current.get(key));
+    }
+
+    /**
+     * @param String storeName
+     * @return Fingerprints of the last successful publish, empty if unknown
+     */
+    protected TreeMap<String, String> readFingerprints(String storeName) throws IOException {
+        TreeMap<String, String> fingerprints = new TreeMap<String, String>();
+        File file = new File(this.fingerprintDirectory, storeName + ".properties");
+        if (!file.isFile()) {
+            return fingerprints;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            fingerprints.put(key, properties.getProperty(key));
+        }
+        return fingerprints;
+    }
+
+    /**
+     * @param String storeName
+     * @param TreeMap<String, String> fingerprints
+     */
+    protected void writeFingerprints(String storeName, TreeMap<String, String> fingerprints) throws IOException {
+        // Publishers of other plans may create the directory at the same time
+        this.fingerprintDirectory.mkdirs();
+        if (!this.fingerprintDirectory.isDirectory()) {
+            throw new IOException("Can not create fingerprint directory " + this.fingerprintDirectory);
+        }
+        Properties properties = new Properties();
+        properties.putAll(fingerprints);
+        File file = new File(this.fingerprintDirectory, storeName + ".properties");
+        File temporaryFile = new File(this.fingerprintDirectory, storeName + ".properties.tmp");
+        try (OutputStream output = new FileOutputStream(temporaryFile)) {
+            properties.store(output, "Fingerprints of last successful publish");
+        }
+        if (!temporaryFile.renameTo(file)) {
+            file.delete();
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Can not write fingerprints " + file);
+            }
+        }
+    }
+
+    /**
+     * Send given plan or permissions to the server. The server connection is
+     * created on first use, dry runs need no credentials.
+     *
+     * @param RootEntityPropertiesBuilder<?> entity
+     */
+    protected void publishEntity(RootEntityPropertiesBuilder<?> entity) {
+        if (this.bambooServer == null) {
+            // By default credentials are read from the '.credentials' file.
+            this.bambooServer = new BambooServer(this.bambooServerName);
+        }
+        this.bambooServer.publish(entity);
+    }
+}
@@ -31,7 +31,6 @@ import com.atlassian.bamboo.specs.builders.notification.PlanCompletedNotificatio
 import com.atlassian.bamboo.specs.builders.task.ScriptTask;
 import com.atlassian.bamboo.specs.builders.trigger.ScheduledTrigger;
 import com.atlassian.bamboo.specs.model.task.ScriptTaskProperties;
-import com.atlassian.bamboo.specs.util.BambooServer;
 
 /**
  * Core master nightly test plan.
@@ -42,21 +41,30 @@ public class NightlySpec extends AbstractCoreSpec {
     protected static String planName = "Core master nightly";
     protected static String planKey = "GTN";
 
-    protected int numberOfAcceptanceTestJobs = 8;
-    protected int numberOfFunctionalMysqlJobs = 6;
-    protected int numberOfFunctionalMssqlJobs = 16;
-    protected int numberOfFunctionalPgsqlJobs = 6;
-    protected int numberOfFunctionalSqliteJobs = 6;
+    /**
+     * Wanted duration of functional and acceptance jobs, their number is computed from the timing profile
+     */
+    protected int targetChunkSeconds = 900;
+
+    protected int numberOfAcceptanceTestJobs = this.getNumberOfChunks("acceptance-mysql", this.targetChunkSeconds);
+    protected int numberOfFunctionalMysqlJobs = this.getNumberOfChunks("functional-mysql", this.targetChunkSeconds);
+    protected int numberOfFunctionalMssqlJobs = this.getNumberOfChunks("functional-mssql", this.targetChunkSeconds);
+    protected int numberOfFunctionalPgsqlJobs = this.getNumberOfChunks("functional-pgsql", this.targetChunkSeconds);
+    protected int numberOfFunctionalSqliteJobs = this.getNumberOfChunks("functional-sqlite", this.targetChunkSeconds);
     protected int numberOfUnitRandomOrderJobs = 2;
 
+    public NightlySpec() {
+        this.useTestDurationRegressionDetection = true;
+    }
+
     /**
      * Run main to publish plan on Bamboo
      */
     public static void main(final String[] args) throws Exception {
-        // By default credentials are read from the '.credentials' file.
-        BambooServer bambooServer = new BambooServer(bambooServerName);
-        bambooServer.publish(new NightlySpec().createPlan());
-        bambooServer.publish(new NightlySpec().getDefaultPlanPermissions(projectKey, planKey));
+        // Publishes changed plans only, see IncrementalPublisher for modes
+        IncrementalPublisher publisher = IncrementalPublisher.fromSystemProperties(bambooServerName);
+        NightlySpec spec = new NightlySpec();
+        publisher.publish(spec.createPlan(), spec.getDefaultPlanPermissions(projectKey, planKey));
     }
 
     /**
@@ -73,6 +81,19 @@ public class NightlySpec extends AbstractCoreSpec {
         // PREPARATION stage
         ArrayList<Job> jobsPreparationStage = new ArrayList<Job>();
         jobsPreparationStage.add(this.getJobBuildLabels());
+        if (this.useDurationBasedFunctionalSplit || this.useDurationBasedAcceptanceSplit) {
+            jobsPreparationStage.add(this.getJobCollectTestDurations());
+        }
+        if (this.useWorkspaceSnapshot) {
+            jobsPreparationStage.add(this.getJobWorkspaceSnapshot(false));
+        }
+        jobsPreparationStage.add(this.getJobYarnArtifact("JS", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP72", "Install", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP73", "Install", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP72", "UpdateMax", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP73", "UpdateMax", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP72", "UpdateMin", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP73", "UpdateMin", false));
         Stage stagePreparation = new Stage("Preparation")
             .jobs(jobsPreparationStage.toArray(new Job[jobsPreparationStage.size()]));
 
@@ -82,45 +103,41 @@ public class NightlySpec extends AbstractCoreSpec {
 
         jobsMainStage.add(this.getJobComposerValidate("PHP72", false));
 
-        jobsMainStage.add(this.getJobAcceptanceTestInstallMysql(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallMysql(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallPgsql(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallPgsql(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallSqlite(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallSqlite(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.add(this.getJobAcceptanceTestInstall(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobAcceptanceTestInstall(0, "PHP73", "Install", false));
 
-        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP73", "Install", false));
 
-        jobsMainStage.add(this.getJobCglCheckFullCore(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobCglCheckFullCore(0, "PHP72", "Install", false));
 
-        jobsMainStage.add(this.getJobIntegrationDocBlocks(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobIntegrationAnnotations(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobIntegrationDocBlocks(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobIntegrationAnnotations(0, "PHP72", "Install", false));
 
-        jobsMainStage.add(this.getJobIntegrationVarious(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobIntegrationVarious(0, "PHP72", "Install", false));
 
-        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP73", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP73", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP73", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP73", "Install", false));
 
-        jobsMainStage.add(this.getJobUnitJavaScript(0, "JS", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobUnitJavaScript(0, "JS", "Install", false));
 
         jobsMainStage.add(this.getJobLintPhp("PHP72", false));
         jobsMainStage.add(this.getJobLintPhp("PHP73", false));
 
         jobsMainStage.add(this.getJobLintScssTs("JS", false));
 
-        jobsMainStage.add(this.getJobUnitPhp(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobUnitPhp(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.add(this.getJobUnitPhp(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobUnitPhp(0, "PHP73", "Install", false));
+        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP73", "Install", false));
+        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP73", "Install", false));
 
         Stage stageMainStage = new Stage("Main stage")
             .jobs(jobsMainStage.toArray(new Job[jobsMainStage.size()]));
@@ -129,42 +146,38 @@ public class NightlySpec extends AbstractCoreSpec {
         // COMPOSER UPDATE MAX stage
         ArrayList<Job> jobsComposerMaxStage = new ArrayList<Job>();
 
-        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstallMysql(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstallMysql(1, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
-        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstallPgsql(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstallPgsql(1, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
-        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstallSqlite(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstallSqlite(1, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
+        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstall(1, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.add(this.getJobAcceptanceTestInstall(1, "PHP73", "UpdateMax", false));
 
-        jobsComposerMaxStage.addAll(this.getJobsAcceptanceTestsBackendMysql(1, this.numberOfAcceptanceTestJobs, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.addAll(this.getJobsAcceptanceTestsBackendMysql(1, this.numberOfAcceptanceTestJobs, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
+        jobsComposerMaxStage.addAll(this.getJobsAcceptanceTestsBackendMysql(1, this.numberOfAcceptanceTestJobs, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsAcceptanceTestsBackendMysql(1, this.numberOfAcceptanceTestJobs, "PHP73", "UpdateMax", false));
 
-        jobsComposerMaxStage.add(this.getJobCglCheckFullCore(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
+        jobsComposerMaxStage.add(this.getJobCglCheckFullCore(1, "PHP72", "UpdateMax", false));
 
-        jobsComposerMaxStage.add(this.getJobIntegrationDocBlocks(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.add(this.getJobIntegrationAnnotations(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
+        jobsComposerMaxStage.add(this.getJobIntegrationDocBlocks(1, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.add(this.getJobIntegrationAnnotations(1, "PHP72", "UpdateMax", false));
 
-        jobsComposerMaxStage.add(this.getJobIntegrationVarious(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
+        jobsComposerMaxStage.add(this.getJobIntegrationVarious(1, "PHP72", "UpdateMax", false));
 
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMysql(1, this.numberOfFunctionalMysqlJobs, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMysql(1, this.numberOfFunctionalMysqlJobs, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMssql(1, this.numberOfFunctionalMssqlJobs, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMssql(1, this.numberOfFunctionalMssqlJobs, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsPgsql(1, this.numberOfFunctionalPgsqlJobs, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsPgsql(1, this.numberOfFunctionalPgsqlJobs, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsSqlite(1, this.numberOfFunctionalSqliteJobs, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsSqlite(1, this.numberOfFunctionalSqliteJobs, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMysql(1, this.numberOfFunctionalMysqlJobs, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMysql(1, this.numberOfFunctionalMysqlJobs, "PHP73", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMssql(1, this.numberOfFunctionalMssqlJobs, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsMssql(1, this.numberOfFunctionalMssqlJobs, "PHP73", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsPgsql(1, this.numberOfFunctionalPgsqlJobs, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsPgsql(1, this.numberOfFunctionalPgsqlJobs, "PHP73", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsSqlite(1, this.numberOfFunctionalSqliteJobs, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobsFunctionalTestsSqlite(1, this.numberOfFunctionalSqliteJobs, "PHP73", "UpdateMax", false));
 
-        jobsComposerMaxStage.add(this.getJobUnitJavaScript(1, "JS", this.getTaskComposerUpdateMax("PHP72"), false));
+        jobsComposerMaxStage.add(this.getJobUnitJavaScript(1, "JS", "UpdateMax", false));
 
-        jobsComposerMaxStage.add(this.getJobUnitPhp(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.add(this.getJobUnitPhp(1, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
-        jobsComposerMaxStage.add(this.getJobUnitDeprecatedPhp(1, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.add(this.getJobUnitDeprecatedPhp(1, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
+        jobsComposerMaxStage.add(this.getJobUnitPhp(1, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.add(this.getJobUnitPhp(1, "PHP73", "UpdateMax", false));
+        jobsComposerMaxStage.add(this.getJobUnitDeprecatedPhp(1, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.add(this.getJobUnitDeprecatedPhp(1, "PHP73", "UpdateMax", false));
 
         // Disabled for now since young phpunit with built-in randomizer collides with this one. Needs investigation.
-        jobsComposerMaxStage.addAll(this.getJobUnitPhpRandom(1, this.numberOfUnitRandomOrderJobs, "PHP72", this.getTaskComposerUpdateMax("PHP72"), false));
-        jobsComposerMaxStage.addAll(this.getJobUnitPhpRandom(1, this.numberOfUnitRandomOrderJobs, "PHP73", this.getTaskComposerUpdateMax("PHP73"), false));
+        jobsComposerMaxStage.addAll(this.getJobUnitPhpRandom(1, this.numberOfUnitRandomOrderJobs, "PHP72", "UpdateMax", false));
+        jobsComposerMaxStage.addAll(this.getJobUnitPhpRandom(1, this.numberOfUnitRandomOrderJobs, "PHP73", "UpdateMax", false));
 
         Stage stageComposerMaxStage = new Stage("Composer update max")
             .jobs(jobsComposerMaxStage.toArray(new Job[jobsComposerMaxStage.size()]));
@@ -172,45 +185,63 @@ public class NightlySpec extends AbstractCoreSpec {
         // COMPOSER UPDATE MIN stage
         ArrayList<Job> jobsComposerMinStage = new ArrayList<Job>();
 
-        jobsComposerMinStage.add(this.getJobAcceptanceTestInstallMysql(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.add(this.getJobAcceptanceTestInstallMysql(2, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
-        jobsComposerMinStage.add(this.getJobAcceptanceTestInstallPgsql(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.add(this.getJobAcceptanceTestInstallPgsql(2, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
-        jobsComposerMinStage.add(this.getJobAcceptanceTestInstallSqlite(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.add(this.getJobAcceptanceTestInstallSqlite(2, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
+        jobsComposerMinStage.add(this.getJobAcceptanceTestInstall(2, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.add(this.getJobAcceptanceTestInstall(2, "PHP73", "UpdateMin", false));
 
-        jobsComposerMinStage.addAll(this.getJobsAcceptanceTestsBackendMysql(2, this.numberOfAcceptanceTestJobs, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.addAll(this.getJobsAcceptanceTestsBackendMysql(2, this.numberOfAcceptanceTestJobs, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
+        jobsComposerMinStage.addAll(this.getJobsAcceptanceTestsBackendMysql(2, this.numberOfAcceptanceTestJobs, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsAcceptanceTestsBackendMysql(2, this.numberOfAcceptanceTestJobs, "PHP73", "UpdateMin", false));
 
-        jobsComposerMinStage.add(this.getJobCglCheckFullCore(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
+        jobsComposerMinStage.add(this.getJobCglCheckFullCore(2, "PHP72", "UpdateMin", false));
 
-        jobsComposerMinStage.add(this.getJobIntegrationDocBlocks(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.add(this.getJobIntegrationAnnotations(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
+        jobsComposerMinStage.add(this.getJobIntegrationDocBlocks(2, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.add(this.getJobIntegrationAnnotations(2, "PHP72", "UpdateMin", false));
 
-        jobsComposerMinStage.add(this.getJobIntegrationVarious(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
+        jobsComposerMinStage.add(this.getJobIntegrationVarious(2, "PHP72", "UpdateMin", false));
 
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMysql(2, this.numberOfFunctionalMysqlJobs, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMysql(2, this.numberOfFunctionalMysqlJobs, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMssql(2, this.numberOfFunctionalMssqlJobs, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMssql(2, this.numberOfFunctionalMssqlJobs, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMysql(2, this.numberOfFunctionalMysqlJobs, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMysql(2, this.numberOfFunctionalMysqlJobs, "PHP73", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMssql(2, this.numberOfFunctionalMssqlJobs, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsMssql(2, this.numberOfFunctionalMssqlJobs, "PHP73", "UpdateMin", false));
 
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsPgsql(2, this.numberOfFunctionalPgsqlJobs, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsPgsql(2, this.numberOfFunctionalPgsqlJobs, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsSqlite(2, this.numberOfFunctionalSqliteJobs, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsSqlite(2, this.numberOfFunctionalSqliteJobs, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsPgsql(2, this.numberOfFunctionalPgsqlJobs, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsPgsql(2, this.numberOfFunctionalPgsqlJobs, "PHP73", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsSqlite(2, this.numberOfFunctionalSqliteJobs, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobsFunctionalTestsSqlite(2, this.numberOfFunctionalSqliteJobs, "PHP73", "UpdateMin", false));
 
-        jobsComposerMinStage.add(this.getJobUnitJavaScript(2, "JS", this.getTaskComposerUpdateMin("PHP72"), false));
+        jobsComposerMinStage.add(this.getJobUnitJavaScript(2, "JS", "UpdateMin", false));
 
-        jobsComposerMinStage.add(this.getJobUnitPhp(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.add(this.getJobUnitPhp(2, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
-        jobsComposerMinStage.add(this.getJobUnitDeprecatedPhp(2, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.add(this.getJobUnitDeprecatedPhp(2, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
-        jobsComposerMinStage.addAll(this.getJobUnitPhpRandom(2, this.numberOfUnitRandomOrderJobs, "PHP72", this.getTaskComposerUpdateMin("PHP72"), false));
-        jobsComposerMinStage.addAll(this.getJobUnitPhpRandom(2, this.numberOfUnitRandomOrderJobs, "PHP73", this.getTaskComposerUpdateMin("PHP73"), false));
+        jobsComposerMinStage.add(this.getJobUnitPhp(2, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.add(this.getJobUnitPhp(2, "PHP73", "UpdateMin", false));
+        jobsComposerMinStage.add(this.getJobUnitDeprecatedPhp(2, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.add(this.getJobUnitDeprecatedPhp(2, "PHP73", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobUnitPhpRandom(2, this.numberOfUnitRandomOrderJobs, "PHP72", "UpdateMin", false));
+        jobsComposerMinStage.addAll(this.getJobUnitPhpRandom(2, this.numberOfUnitRandomOrderJobs, "PHP73", "UpdateMin", false));
 
         Stage stageComposerMinStage = new Stage("Composer update min")
             .jobs(jobsComposerMinStage.toArray(new Job[jobsComposerMinStage.size()]));
 
+        // Warn about tests that became slower than in previous nightly runs
+        if (this.useTestDurationRegressionDetection) {
+            ArrayList<Job> jobsTestStages = new ArrayList<Job>();
+            jobsTestStages.addAll(jobsMainStage);
+            jobsTestStages.addAll(jobsComposerMaxStage);
+            jobsTestStages.addAll(jobsComposerMinStage);
+            for (Job job : jobsTestStages) {
+                if (this.hasJunitTestParser(job)) {
+                    job.finalTasks(this.getTaskDetectTestDurationRegressions());
+                }
+            }
+        }
+
+        // TASK TIMINGS stage
+        ArrayList<Job> jobsAllStages = new ArrayList<Job>();
+        jobsAllStages.addAll(jobsPreparationStage);
+        jobsAllStages.addAll(jobsMainStage);
+        jobsAllStages.addAll(jobsComposerMaxStage);
+        jobsAllStages.addAll(jobsComposerMinStage);
+        Stage stageTaskTimings = new Stage("Task timings")
+            .jobs(this.getJobTaskTimingsReport(this.addTaskTimings(jobsAllStages), "PHP72", false));
+
         // Compile plan
         return new Plan(project(), planName, planKey)
             .description("Execute TYPO3 core master nightly tests. Auto generated! See Build/bamboo of core git repository.")
@@ -219,7 +250,8 @@ public class NightlySpec extends AbstractCoreSpec {
                 stagePreparation,
                 stageMainStage,
                 stageComposerMaxStage,
-                stageComposerMinStage
+                stageComposerMinStage,
+                stageTaskTimings
             )
             .linkedRepositories("github TYPO3 TYPO3.CMS")
             .triggers(
@@ -33,7 +33,6 @@ import com.atlassian.bamboo.specs.builders.task.ScriptTask;
 import com.atlassian.bamboo.specs.builders.trigger.RemoteTrigger;
 import com.atlassian.bamboo.specs.builders.trigger.RepositoryPollingTrigger;
 import com.atlassian.bamboo.specs.model.task.ScriptTaskProperties;
-import com.atlassian.bamboo.specs.util.BambooServer;
 
 /**
  * Core master pre-merge test plan.
@@ -44,21 +43,34 @@ public class PreMergeSpec extends AbstractCoreSpec {
     protected static String planName = "Core master pre-merge";
     protected static String planKey = "GTC";
 
-    protected int numberOfAcceptanceTestJobs = 10;
-    protected int numberOfFunctionalMysqlJobs = 10;
-    protected int numberOfFunctionalMssqlJobs = 10;
-    protected int numberOfFunctionalPgsqlJobs = 10;
-    protected int numberOfFunctionalSqliteJobs = 10;
+    /**
+     * Wanted duration of functional and acceptance jobs, their number is computed from the timing profile
+     */
+    protected int targetChunkSeconds = 600;
+
+    protected int numberOfAcceptanceTestJobs = this.getNumberOfChunks("acceptance-mysql", this.targetChunkSeconds);
+    protected int numberOfFunctionalMysqlJobs = this.getNumberOfChunks("functional-mysql", this.targetChunkSeconds);
+    protected int numberOfFunctionalMssqlJobs = this.getNumberOfChunks("functional-mssql", this.targetChunkSeconds);
+    protected int numberOfFunctionalPgsqlJobs = this.getNumberOfChunks("functional-pgsql", this.targetChunkSeconds);
+    protected int numberOfFunctionalSqliteJobs = this.getNumberOfChunks("functional-sqlite", this.targetChunkSeconds);
     protected int numberOfUnitRandomOrderJobs = 1;
 
+    public PreMergeSpec() {
+        this.useDurationBasedFunctionalSplit = true;
+        this.useDurationBasedAcceptanceSplit = true;
+        this.useAcceptanceSnapshot = true;
+        this.useChangeImpactAnalysis = true;
+        this.useResultCache = true;
+    }
+
     /**
      * Run main to publish plan on Bamboo
      */
     public static void main(final String[] args) throws Exception {
-        // By default credentials are read from the '.credentials' file.
-        BambooServer bambooServer = new BambooServer(bambooServerName);
-        bambooServer.publish(new PreMergeSpec().createPlan());
-        bambooServer.publish(new PreMergeSpec().getDefaultPlanPermissions(projectKey, planKey));
+        // Publishes changed plans only, see IncrementalPublisher for modes
+        IncrementalPublisher publisher = IncrementalPublisher.fromSystemProperties(bambooServerName);
+        PreMergeSpec spec = new PreMergeSpec();
+        publisher.publish(spec.createPlan(), spec.getDefaultPlanPermissions(projectKey, planKey));
     }
 
     /**
@@ -75,6 +87,15 @@ public class PreMergeSpec extends AbstractCoreSpec {
         // PREPARATION stage
         ArrayList<Job> jobsPreparationStage = new ArrayList<Job>();
         jobsPreparationStage.add(this.getJobBuildLabels());
+        if (this.useDurationBasedFunctionalSplit || this.useDurationBasedAcceptanceSplit) {
+            jobsPreparationStage.add(this.getJobCollectTestDurations());
+        }
+        if (this.useWorkspaceSnapshot) {
+            jobsPreparationStage.add(this.getJobWorkspaceSnapshot(false));
+        }
+        jobsPreparationStage.add(this.getJobYarnArtifact("JS", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP72", "Install", false));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP73", "Install", false));
         Stage stagePreparation = new Stage("Preparation")
             .jobs(jobsPreparationStage.toArray(new Job[jobsPreparationStage.size()]));
 
@@ -82,46 +103,77 @@ public class PreMergeSpec extends AbstractCoreSpec {
         ArrayList<Job> jobsEarlyStage = new ArrayList<Job>();
         jobsEarlyStage.add(this.getJobCglCheckGitCommit("PHP72", false));
         jobsEarlyStage.add(this.getJobComposerValidate("PHP72", false));
-        Stage stageEarly = new Stage("Early")
-            .jobs(jobsEarlyStage.toArray(new Job[jobsEarlyStage.size()]));
+        if (this.useAcceptanceSnapshot) {
+            jobsEarlyStage.add(this.getJobAcceptanceTestSnapshot("PHP73", "Install", false));
+        }
 
         // MAIN stage
         ArrayList<Job> jobsMainStage = new ArrayList<Job>();
 
-        jobsMainStage.add(this.getJobAcceptanceTestInstallMysql(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallPgsql(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallSqlite(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobAcceptanceTestInstall(0, "PHP73", "Install", false));
 
-        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP73", "Install", false));
 
-        jobsMainStage.add(this.getJobIntegrationDocBlocks(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobIntegrationAnnotations(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobIntegrationDocBlocks(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobIntegrationAnnotations(0, "PHP72", "Install", false));
 
-        jobsMainStage.add(this.getJobIntegrationVarious(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobIntegrationVarious(0, "PHP72", "Install", false));
 
-        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP73", "Install", false));
         // mssql functionals are not executed as pre-merge
-        // jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
+        // jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP72", "Install", false));
 
-        jobsMainStage.add(this.getJobUnitJavaScript(0, "JS", this.getTaskComposerInstall("PHP72"), false));
+        jobsMainStage.add(this.getJobUnitJavaScript(0, "JS", "Install", false));
 
         jobsMainStage.add(this.getJobLintPhp("PHP72", false));
         jobsMainStage.add(this.getJobLintPhp("PHP73", false));
 
         jobsMainStage.add(this.getJobLintScssTs("JS", false));
 
-        jobsMainStage.add(this.getJobUnitPhp(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobUnitPhp(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP73", this.getTaskComposerInstall("PHP73"), false));
-        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP73", this.getTaskComposerInstall("PHP73"), false));
+        jobsMainStage.add(this.getJobUnitPhp(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobUnitPhp(0, "PHP73", "Install", false));
+        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP73", "Install", false));
+        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP72", "Install", false));
+        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP73", "Install", false));
+
+        // Skip main stage jobs of test suites not affected by the patch set
+        if (this.useChangeImpactAnalysis) {
+            jobsEarlyStage.add(this.getJobChangeImpactAnalysis(jobsMainStage, "PHP72", false));
+            for (Job job : jobsMainStage) {
+                if (this.getChangeImpactSuite(job) != null) {
+                    job.artifactSubscriptions(this.getArtifactSubscriptionChangeImpact());
+                }
+            }
+        }
+
+        // Restore results of jobs whose inputs equal those of an earlier green run
+        if (this.useResultCache) {
+            jobsEarlyStage.add(this.getJobResultCacheKeys(jobsMainStage));
+            for (Job job : jobsMainStage) {
+                if (this.isResultCacheable(job)) {
+                    job.artifactSubscriptions(this.getArtifactSubscriptionResultCache());
+                    job.tasks(this.getTaskResultCacheStore());
+                }
+            }
+        }
+
+        Stage stageEarly = new Stage("Early")
+            .jobs(jobsEarlyStage.toArray(new Job[jobsEarlyStage.size()]));
 
         Stage stageMainStage = new Stage("Main stage")
             .jobs(jobsMainStage.toArray(new Job[jobsMainStage.size()]));
 
+        // TASK TIMINGS stage
+        ArrayList<Job> jobsAllStages = new ArrayList<Job>();
+        jobsAllStages.addAll(jobsPreparationStage);
+        jobsAllStages.addAll(jobsEarlyStage);
+        jobsAllStages.addAll(jobsMainStage);
+        Stage stageTaskTimings = new Stage("Task timings")
+            .jobs(this.getJobTaskTimingsReport(this.addTaskTimings(jobsAllStages), "PHP72", false));
+
         // Compile plan
         return new Plan(project(), planName, planKey)
             .description("Execute TYPO3 core master pre-merge tests. Auto generated! See Build/bamboo of core git repository.")
@@ -129,7 +181,8 @@ public class PreMergeSpec extends AbstractCoreSpec {
             .stages(
                 stagePreparation,
                 stageEarly,
-                stageMainStage
+                stageMainStage,
+                stageTaskTimings
             )
             .linkedRepositories("github TYPO3 TYPO3.CMS")
             .triggers(
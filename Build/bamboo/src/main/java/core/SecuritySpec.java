@@ -33,7 +33,6 @@ import com.atlassian.bamboo.specs.builders.task.ScriptTask;
 import com.atlassian.bamboo.specs.builders.trigger.RemoteTrigger;
 import com.atlassian.bamboo.specs.builders.trigger.RepositoryPollingTrigger;
 import com.atlassian.bamboo.specs.model.task.ScriptTaskProperties;
-import com.atlassian.bamboo.specs.util.BambooServer;
 
 /**
  * Core master security test plan.
@@ -44,21 +43,26 @@ public class SecuritySpec extends AbstractCoreSpec {
     protected static String planName = "Core master security";
     protected static String planKey = "GTS";
 
-    protected int numberOfAcceptanceTestJobs = 10;
-    protected int numberOfFunctionalMysqlJobs = 10;
-    protected int numberOfFunctionalMssqlJobs = 10;
-    protected int numberOfFunctionalPgsqlJobs = 10;
-    protected int numberOfFunctionalSqliteJobs = 10;
+    /**
+     * Wanted duration of functional and acceptance jobs, their number is computed from the timing profile
+     */
+    protected int targetChunkSeconds = 600;
+
+    protected int numberOfAcceptanceTestJobs = this.getNumberOfChunks("acceptance-mysql", this.targetChunkSeconds);
+    protected int numberOfFunctionalMysqlJobs = this.getNumberOfChunks("functional-mysql", this.targetChunkSeconds);
+    protected int numberOfFunctionalMssqlJobs = this.getNumberOfChunks("functional-mssql", this.targetChunkSeconds);
+    protected int numberOfFunctionalPgsqlJobs = this.getNumberOfChunks("functional-pgsql", this.targetChunkSeconds);
+    protected int numberOfFunctionalSqliteJobs = this.getNumberOfChunks("functional-sqlite", this.targetChunkSeconds);
     protected int numberOfUnitRandomOrderJobs = 1;
 
     /**
      * Run main to publish plan on Bamboo
      */
     public static void main(final String[] args) throws Exception {
-        // By default credentials are read from the '.credentials' file.
-        BambooServer bambooServer = new BambooServer(bambooServerName);
-        bambooServer.publish(new SecuritySpec().createPlan());
-        bambooServer.publish(new SecuritySpec().getSecurityPlanPermissions(projectKey, planKey));
+        // Publishes changed plans only, see IncrementalPublisher for modes
+        IncrementalPublisher publisher = IncrementalPublisher.fromSystemProperties(bambooServerName);
+        SecuritySpec spec = new SecuritySpec();
+        publisher.publish(spec.createPlan(), spec.getSecurityPlanPermissions(projectKey, planKey));
     }
 
     /**
@@ -75,6 +79,15 @@ public class SecuritySpec extends AbstractCoreSpec {
         // PREPARATION stage
         ArrayList<Job> jobsPreparationStage = new ArrayList<Job>();
         jobsPreparationStage.add(this.getJobBuildLabels());
+        if (this.useDurationBasedFunctionalSplit || this.useDurationBasedAcceptanceSplit) {
+            jobsPreparationStage.add(this.getJobCollectTestDurations());
+        }
+        if (this.useWorkspaceSnapshot) {
+            jobsPreparationStage.add(this.getJobWorkspaceSnapshot(true));
+        }
+        jobsPreparationStage.add(this.getJobYarnArtifact("JS", true));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP72", "Install", true));
+        jobsPreparationStage.add(this.getJobComposerArtifact("PHP73", "Install", true));
         Stage stagePreparation = new Stage("Preparation")
             .jobs(jobsPreparationStage.toArray(new Job[jobsPreparationStage.size()]));
 
@@ -82,46 +95,55 @@ public class SecuritySpec extends AbstractCoreSpec {
         ArrayList<Job> jobsEarlyStage = new ArrayList<Job>();
         jobsEarlyStage.add(this.getJobCglCheckGitCommit("PHP72", true));
         jobsEarlyStage.add(this.getJobComposerValidate("PHP72", true));
+        if (this.useAcceptanceSnapshot) {
+            jobsEarlyStage.add(this.getJobAcceptanceTestSnapshot("PHP73", "Install", true));
+        }
         Stage stageEarly = new Stage("Early")
             .jobs(jobsEarlyStage.toArray(new Job[jobsEarlyStage.size()]));
 
         // MAIN stage
         ArrayList<Job> jobsMainStage = new ArrayList<Job>();
 
-        jobsMainStage.add(this.getJobAcceptanceTestInstallMysql(0, "PHP73", this.getTaskComposerInstall("PHP73"), true));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallPgsql(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
-        jobsMainStage.add(this.getJobAcceptanceTestInstallSqlite(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
+        jobsMainStage.add(this.getJobAcceptanceTestInstall(0, "PHP73", "Install", true));
 
-        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP73", this.getTaskComposerInstall("PHP73"), true));
+        jobsMainStage.addAll(this.getJobsAcceptanceTestsBackendMysql(0, this.numberOfAcceptanceTestJobs, "PHP73", "Install", true));
 
-        jobsMainStage.add(this.getJobIntegrationDocBlocks(0, "PHP72", this.getTaskComposerInstall("PHP72"), false));
-        jobsMainStage.add(this.getJobIntegrationAnnotations(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
+        jobsMainStage.add(this.getJobIntegrationDocBlocks(0, "PHP72", "Install", false));
+        jobsMainStage.add(this.getJobIntegrationAnnotations(0, "PHP72", "Install", true));
 
-        jobsMainStage.add(this.getJobIntegrationVarious(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
+        jobsMainStage.add(this.getJobIntegrationVarious(0, "PHP72", "Install", true));
 
-        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP73", this.getTaskComposerInstall("PHP73"), true));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsMysql(0, this.numberOfFunctionalMysqlJobs, "PHP73", "Install", true));
         // mssql functionals are not executed as pre-merge
-        // jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), true));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP72", this.getTaskComposerInstall("PHP72"), true));
-        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP72", this.getTaskComposerInstall("PHP72"), true));
+        // jobsMainStage.addAll(this.getJobsFunctionalTestsMssql(0, this.numberOfFunctionalMssqlJobs, "PHP72", "Install", true));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsPgsql(0, this.numberOfFunctionalPgsqlJobs, "PHP72", "Install", true));
+        jobsMainStage.addAll(this.getJobsFunctionalTestsSqlite(0, this.numberOfFunctionalSqliteJobs, "PHP72", "Install", true));
 
-        jobsMainStage.add(this.getJobUnitJavaScript(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
+        jobsMainStage.add(this.getJobUnitJavaScript(0, "PHP72", "Install", true));
 
         jobsMainStage.add(this.getJobLintPhp("PHP72", true));
         jobsMainStage.add(this.getJobLintPhp("PHP73", true));
 
         jobsMainStage.add(this.getJobLintScssTs("JS", true));
 
-        jobsMainStage.add(this.getJobUnitPhp(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
-        jobsMainStage.add(this.getJobUnitPhp(0, "PHP73", this.getTaskComposerInstall("PHP73"), true));
-        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP72", this.getTaskComposerInstall("PHP72"), true));
-        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP73", this.getTaskComposerInstall("PHP73"), true));
-        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP72", this.getTaskComposerInstall("PHP72"), true));
-        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP73", this.getTaskComposerInstall("PHP73"), true));
+        jobsMainStage.add(this.getJobUnitPhp(0, "PHP72", "Install", true));
+        jobsMainStage.add(this.getJobUnitPhp(0, "PHP73", "Install", true));
+        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP72", "Install", true));
+        jobsMainStage.add(this.getJobUnitDeprecatedPhp(0, "PHP73", "Install", true));
+        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP72", "Install", true));
+        jobsMainStage.addAll(this.getJobUnitPhpRandom(0, this.numberOfUnitRandomOrderJobs, "PHP73", "Install", true));
 
         Stage stageMainStage = new Stage("Main stage")
             .jobs(jobsMainStage.toArray(new Job[jobsMainStage.size()]));
 
+        // TASK TIMINGS stage
+        ArrayList<Job> jobsAllStages = new ArrayList<Job>();
+        jobsAllStages.addAll(jobsPreparationStage);
+        jobsAllStages.addAll(jobsEarlyStage);
+        jobsAllStages.addAll(jobsMainStage);
+        Stage stageTaskTimings = new Stage("Task timings")
+            .jobs(this.getJobTaskTimingsReport(this.addTaskTimings(jobsAllStages), "PHP72", true));
+
         // Compile plan
         return new Plan(project(), planName, planKey)
             .description("Execute TYPO3 core master security tests. Auto generated! See Build/bamboo of core git repository.")
@@ -129,7 +151,8 @@ public class SecuritySpec extends AbstractCoreSpec {
             .stages(
                 stagePreparation,
                 stageEarly,
-                stageMainStage
+                stageMainStage,
+                stageTaskTimings
             )
             .linkedRepositories("github TYPO3 TYPO3.CMS")
             .triggers(
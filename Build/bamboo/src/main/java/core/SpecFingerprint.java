@@ -0,0 +1,127 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stable fingerprints of generated plan entities. Used by IncrementalPublisher
+ * to find changed jobs and by the result cache of AbstractCoreSpec to identify
+ * a job definition.
+ */
+public class SpecFingerprint {
+
+    /**
+     * @param Object properties Properties object, e.g. built by EntityPropertiesBuilders
+     * @return Deterministic text form of given object graph
+     */
+    public static String canonical(Object properties) {
+        StringBuilder canonical = new StringBuilder();
+        appendCanonical(canonical, properties);
+        return canonical.toString();
+    }
+
+    /**
+     * Deterministic text form of a properties object graph: fields sorted by
+     * name, maps sorted by key. JDK types are rendered by toString().
+     *
+     * @param StringBuilder canonical
+     * @param Object value
+     */
+    protected static void appendCanonical(StringBuilder canonical, Object value) {
+        if (value == null) {
+            canonical.append("null");
+        } else if (value instanceof CharSequence) {
+            canonical.append('"').append(value.toString().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            canonical.append(value);
+        } else if (value instanceof Enum) {
+            canonical.append(((Enum<?>) value).name());
+        } else if (value instanceof Collection) {
+            canonical.append('[');
+            for (Object item : (Collection<?>) value) {
+                appendCanonical(canonical, item);
+                canonical.append(',');
+            }
+            canonical.append(']');
+        } else if (value instanceof Map) {
+            TreeMap<String, Object> sorted = new TreeMap<String, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            canonical.append('{');
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                canonical.append(entry.getKey()).append(':');
+                appendCanonical(canonical, entry.getValue());
+                canonical.append(',');
+            }
+            canonical.append('}');
+        } else if (value.getClass().isArray()) {
+            canonical.append('[');
+            for (int i = 0; i < Array.getLength(value); i++) {
+                appendCanonical(canonical, Array.get(value, i));
+                canonical.append(',');
+            }
+            canonical.append(']');
+        } else if (value.getClass().getName().startsWith("java.")) {
+            canonical.append(value);
+        } else {
+            TreeMap<String, Field> fields = new TreeMap<String, Field>();
+            for (Class<?> type = value.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        fields.put(type.getSimpleName() + "." + field.getName(), field);
+                    }
+                }
+            }
+            canonical.append(value.getClass().getSimpleName()).append('{');
+            for (Map.Entry<String, Field> entry : fields.entrySet()) {
+                canonical.append(entry.getKey()).append(':');
+                try {
+                    entry.getValue().setAccessible(true);
+                    appendCanonical(canonical, entry.getValue().get(value));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Can not read " + entry.getKey(), e);
+                }
+                canonical.append(',');
+            }
+            canonical.append('}');
+        }
+    }
+
+    /**
+     * @param String content
+     * @return Hex encoded sha256 of given content
+     */
+    public static String sha256(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("sha256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.atlassian.bamboo.specs.api.builders.permission.PlanPermissions;
+import com.atlassian.bamboo.specs.api.builders.plan.Plan;
+import com.atlassian.bamboo.specs.api.util.EntityPropertiesBuilders;
+
+/**
+ * Publish all core plans in one step.
+ *
+ * All specs are created and validated in parallel first. If one of them
+ * fails, nothing is published. Then plans are published concurrently by
+ * at most -Dpublish.parallelism (default 2) threads through IncrementalPublisher,
+ * so the publish modes of that class apply. A summary with the duration of
+ * each plan is printed at the end. If a publish failed, the summary lists
+ * which plans were published and which were not, and main() fails.
+ */
+public class SpecPublisher {
+
+    protected static int defaultPublishParallelism = 2;
+
+    /**
+     * A created and validated plan with its permissions
+     */
+    protected static class PlanDefinition {
+        protected String name;
+        protected Plan plan;
+        protected PlanPermissions permissions;
+        protected long generationMillis;
+
+        PlanDefinition(String name, Plan plan, PlanPermissions permissions, long generationMillis) {
+            this.name = name;
+            this.plan = plan;
+            this.permissions = permissions;
+            this.generationMillis = generationMillis;
+        }
+    }
+
+    /**
+     * Run main to publish all plans on Bamboo
+     */
+    public static void main(final String[] args) throws Exception {
+        SpecPublisher specPublisher = new SpecPublisher();
+        ArrayList<PlanDefinition> definitions = specPublisher.createPlans();
+        int parallelism = Integer.parseInt(System.getProperty("publish.parallelism", "" + defaultPublishParallelism));
+        specPublisher.publishPlans(definitions, parallelism);
+    }
+
+    /**
+     * Tasks creating each plan with its permissions, indexed by name
+     */
+    protected LinkedHashMap<String, Callable<PlanDefinition>> getPlanFactories() {
+        LinkedHashMap<String, Callable<PlanDefinition>> factories = new LinkedHashMap<String, Callable<PlanDefinition>>();
+        factories.put("PreMerge", () -> {
+            long start = System.nanoTime();
+            PreMergeSpec spec = new PreMergeSpec();
+            return this.validate("PreMerge", spec.createPlan(), spec.getDefaultPlanPermissions(PreMergeSpec.projectKey, PreMergeSpec.planKey), start);
+        });
+        factories.put("Nightly", () -> {
+            long start = System.nanoTime();
+            NightlySpec spec = new NightlySpec();
+            return this.validate("Nightly", spec.createPlan(), spec.getDefaultPlanPermissions(NightlySpec.projectKey, NightlySpec.planKey), start);
+        });
+        factories.put("Security", () -> {
+            long start = System.nanoTime();
+            SecuritySpec spec = new SecuritySpec();
+            return this.validate("Security", spec.createPlan(), spec.getSecurityPlanPermissions(SecuritySpec.projectKey, SecuritySpec.planKey), start);
+        });
+        return factories;
+    }
+
+    /**
+     * Create and validate all plans in parallel.
+     *
+     * @throws IllegalStateException listing all failed specs if at least one failed
+     */
+    protected ArrayList<PlanDefinition> createPlans() throws InterruptedException {
+        LinkedHashMap<String, Callable<PlanDefinition>> factories = this.getPlanFactories();
+        ArrayList<String> names = new ArrayList<String>(factories.keySet());
+        ExecutorService executor = Executors.newFixedThreadPool(factories.size());
+        ArrayList<PlanDefinition> definitions = new ArrayList<PlanDefinition>();
+        ArrayList<String> failures = new ArrayList<String>();
+        try {
+            ArrayList<Future<PlanDefinition>> futures = new ArrayList<Future<PlanDefinition>>(executor.invokeAll(factories.values()));
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    definitions.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failures.add(names.get(i) + ": " + e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(
+                "Validation failed, nothing has been published:\n    " + String.join("\n    ", failures)
+            );
+        }
+        for (PlanDefinition definition : definitions) {
+            System.out.println("Created and validated " + definition.name + " in " + definition.generationMillis + " ms");
+        }
+        return definitions;
+    }
+
+    /**
+     * Publish all plans with bounded parallelism and report the outcome of each.
+     *
+     * @param ArrayList<PlanDefinition> definitions
+     * @param int parallelism
+     * @throws IllegalStateException listing published and failed plans if at least one failed
+     */
+    protected void publishPlans(ArrayList<PlanDefinition> definitions, int parallelism) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, definitions.size())));
+        ArrayList<Callable<String>> publishers = new ArrayList<Callable<String>>();
+        for (PlanDefinition definition : definitions) {
+            publishers.add(() -> {
+                long start = System.nanoTime();
+                ArrayList<String> changes = this.getIncrementalPublisher().publish(definition.plan, definition.permissions);
+                return changes.size() + " changes, " + ((System.nanoTime() - start) / 1000000) + " ms";
+            });
+        }
+        ArrayList<String> summary = new ArrayList<String>();
+        boolean failed = false;
+        try {
+            ArrayList<Future<String>> futures = new ArrayList<Future<String>>(executor.invokeAll(publishers));
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    summary.add(definitions.get(i).name + ": done, " + futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failed = true;
+                    summary.add(definitions.get(i).name + ": FAILED, " + e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.println("Publish summary:\n    " + String.join("\n    ", summary));
+        if (failed) {
+            throw new IllegalStateException("Not all plans have been published:\n    " + String.join("\n    ", summary));
+        }
+    }
+
+    /**
+     * One publisher per plan, they are used from different threads
+     */
+    protected IncrementalPublisher getIncrementalPublisher() {
+        return IncrementalPublisher.fromSystemProperties(AbstractCoreSpec.bambooServerName);
+    }
+
+    /**
+     * @param String name
+     * @param Plan plan
+     * @param PlanPermissions permissions
+     * @param long start nanoTime generation started
+     */
+    protected PlanDefinition validate(String name, Plan plan, PlanPermissions permissions, long start) {
+        EntityPropertiesBuilders.build(plan);
+        EntityPropertiesBuilders.build(permissions);
+        return new PlanDefinition(name, plan, permissions, (System.nanoTime() - start) / 1000000);
+    }
+}
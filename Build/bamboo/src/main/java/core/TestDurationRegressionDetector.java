@@ -0,0 +1,343 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Find tests and test suites that became significantly slower.
+ *
+ * Durations are read from JUnit reports with a streaming parser, so big
+ * reports are not loaded into memory. A duration is a regression if it
+ * exceeds the median of the previous runs by more than threshold times
+ * the scaled median absolute deviation, and by at least minIncreaseSeconds.
+ * Skipped and failed tests are ignored.
+ *
+ * The history of the last historySize durations per test is kept in a
+ * compact binary file, which is updated after each check. Uses the JDK
+ * only, so the class can be compiled and run without the bamboo specs.
+ *
+ * Usage: TestDurationRegressionDetector <historyFile> <junitReport> [<junitReport> ...]
+ *
+ * Configured with system properties:
+ * - regressions.mode: warn (default) or fail
+ * - regressions.budget: Number of regressions tolerated in mode fail, default 0
+ * - regressions.history, regressions.minSamples, regressions.threshold, regressions.minIncrease
+ */
+public class TestDurationRegressionDetector {
+
+    /**
+     * First bytes of a history file, "TDH1"
+     */
+    protected static int historyMagic = 0x54444831;
+
+    /**
+     * Scales the median absolute deviation to the standard deviation of normal distributed values
+     */
+    protected static double madScale = 1.4826;
+
+    protected int historySize = 20;
+    protected int minSamples = 5;
+    protected double threshold = 3.5;
+    protected double minIncreaseSeconds = 0.5;
+
+    /**
+     * A test or test suite that became slower
+     */
+    protected static class Regression {
+        protected String key;
+        protected double seconds;
+        protected double median;
+        protected double mad;
+        protected int samples;
+
+        Regression(String key, double seconds, double median, double mad, int samples) {
+            this.key = key;
+            this.seconds = seconds;
+            this.median = median;
+            this.mad = mad;
+            this.samples = samples;
+        }
+
+        public String toString() {
+            return String.format("%s: %.2fs, median %.2fs, mad %.2fs of %d runs", this.key, this.seconds, this.median, this.mad, this.samples);
+        }
+    }
+
+    /**
+     * Run main to check given reports against the history and update it
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: TestDurationRegressionDetector <historyFile> <junitReport> [<junitReport> ...]");
+            System.exit(2);
+        }
+        String mode = System.getProperty("regressions.mode", "warn");
+        int budget = Integer.parseInt(System.getProperty("regressions.budget", "0"));
+        TestDurationRegressionDetector detector = fromSystemProperties();
+
+        TreeMap<String, Double> durations = new TreeMap<String, Double>();
+        for (int i = 1; i < args.length; i++) {
+            durations.putAll(detector.readDurations(new File(args[i])));
+        }
+        File historyFile = new File(args[0]);
+        TreeMap<String, float[]> history = detector.readHistory(historyFile);
+        ArrayList<Regression> regressions = detector.detect(durations, history);
+        detector.writeHistory(historyFile, detector.update(history, durations));
+
+        System.out.println("Checked " + durations.size() + " test and suite durations, " + regressions.size() + " regressions");
+        for (Regression regression : regressions) {
+            System.out.println("    " + regression);
+        }
+        if (mode.equals("fail") && regressions.size() > budget) {
+            System.out.println("More than " + budget + " duration regressions");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Detector configured by system properties
+     */
+    public static TestDurationRegressionDetector fromSystemProperties() {
+        TestDurationRegressionDetector detector = new TestDurationRegressionDetector();
+        detector.historySize = Integer.parseInt(System.getProperty("regressions.history", "" + detector.historySize));
+        detector.minSamples = Integer.parseInt(System.getProperty("regressions.minSamples", "" + detector.minSamples));
+        detector.threshold = Double.parseDouble(System.getProperty("regressions.threshold", "" + detector.threshold));
+        detector.minIncreaseSeconds = Double.parseDouble(System.getProperty("regressions.minIncrease", "" + detector.minIncreaseSeconds));
+        return detector;
+    }
+
+    /**
+     * Durations of passed test cases and of test suites of a JUnit report. Test cases are
+     * prefixed with "test ", suites with "suite ". Data provider suites are not included,
+     * their test cases are.
+     *
+     * @param File report
+     */
+    public TreeMap<String, Double> readDurations(File report) throws IOException, XMLStreamException {
+        TreeMap<String, Double> durations = new TreeMap<String, Double>();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream input = new BufferedInputStream(new FileInputStream(report))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            ArrayList<String> suites = new ArrayList<String>();
+            String testCase = null;
+            double testCaseSeconds = 0;
+            boolean passed = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (element.equals("testsuite")) {
+                        String name = this.getAttribute(reader, "name");
+                        suites.add(name);
+                        if (!name.contains("::") && reader.getAttributeValue(null, "time") != null) {
+                            this.add(durations, "suite " + name, this.getSeconds(reader));
+                        }
+                    } else if (element.equals("testcase")) {
+                        String className = reader.getAttributeValue(null, "class");
+                        if (className == null) {
+                            className = reader.getAttributeValue(null, "classname");
+                        }
+                        if (className == null && !suites.isEmpty()) {
+                            className = suites.get(suites.size() - 1);
+                        }
+                        testCase = "test " + className + "::" + this.getAttribute(reader, "name");
+                        testCaseSeconds = this.getSeconds(reader);
+                        passed = true;
+                    } else if (element.equals("skipped") || element.equals("failure") || element.equals("error")) {
+                        passed = false;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (element.equals("testsuite")) {
+                        suites.remove(suites.size() - 1);
+                    } else if (element.equals("testcase")) {
+                        if (passed) {
+                            this.add(durations, testCase, testCaseSeconds);
+                        }
+                        testCase = null;
+                    }
+                }
+            }
+            reader.close();
+        }
+        return durations;
+    }
+
+    /**
+     * Regressions of given durations against the history, slowest increase first
+     *
+     * @param Map<String, Double> durations
+     * @param Map<String, float[]> history
+     */
+    public ArrayList<Regression> detect(Map<String, Double> durations, Map<String, float[]> history) {
+        ArrayList<Regression> regressions = new ArrayList<Regression>();
+        for (Map.Entry<String, Double> entry : durations.entrySet()) {
+            float[] previous = history.get(entry.getKey());
+            if (previous == null || previous.length < this.minSamples) {
+                continue;
+            }
+            double[] samples = new double[previous.length];
+            for (int i = 0; i < previous.length; i++) {
+                samples[i] = previous[i];
+            }
+            double median = median(samples);
+            double[] deviations = new double[samples.length];
+            for (int i = 0; i < samples.length; i++) {
+                deviations[i] = Math.abs(samples[i] - median);
+            }
+            double mad = median(deviations);
+            double seconds = entry.getValue();
+            if (seconds > median + this.threshold * madScale * mad && seconds - median >= this.minIncreaseSeconds) {
+                regressions.add(new Regression(entry.getKey(), seconds, median, mad, samples.length));
+            }
+        }
+        regressions.sort((a, b) -> Double.compare(b.seconds - b.median, a.seconds - a.median));
+        return regressions;
+    }
+
+    /**
+     * History with given durations appended, the oldest durations are dropped
+     * if more than historySize are known.
+     *
+     * @param TreeMap<String, float[]> history
+     * @param Map<String, Double> durations
+     */
+    public TreeMap<String, float[]> update(TreeMap<String, float[]> history, Map<String, Double> durations) {
+        TreeMap<String, float[]> updated = new TreeMap<String, float[]>(history);
+        for (Map.Entry<String, Double> entry : durations.entrySet()) {
+            float[] previous = history.containsKey(entry.getKey()) ? history.get(entry.getKey()) : new float[0];
+            int keep = Math.min(previous.length, this.historySize - 1);
+            float[] samples = Arrays.copyOfRange(previous, previous.length - keep, previous.length + 1);
+            samples[keep] = entry.getValue().floatValue();
+            updated.put(entry.getKey(), samples);
+        }
+        return updated;
+    }
+
+    /**
+     * @param File file
+     * @return Durations per test, oldest first. Empty if the file does not exist.
+     */
+    public TreeMap<String, float[]> readHistory(File file) throws IOException {
+        TreeMap<String, float[]> history = new TreeMap<String, float[]>();
+        if (!file.isFile()) {
+            return history;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != historyMagic) {
+                throw new IOException("Not a test duration history " + file);
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = input.readUTF();
+                float[] samples = new float[input.readUnsignedByte()];
+                for (int j = 0; j < samples.length; j++) {
+                    samples[j] = input.readFloat();
+                }
+                history.put(key, samples);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Write history to a temporary file first, so a concurrent reader never sees a partial file
+     *
+     * @param File file
+     * @param TreeMap<String, float[]> history
+     */
+    public void writeHistory(File file, TreeMap<String, float[]> history) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            output.writeInt(historyMagic);
+            output.writeInt(history.size());
+            for (Map.Entry<String, float[]> entry : history.entrySet()) {
+                float[] samples = entry.getValue();
+                int first = Math.max(0, samples.length - Math.min(this.historySize, 255));
+                output.writeUTF(entry.getKey());
+                output.writeByte(samples.length - first);
+                for (int i = first; i < samples.length; i++) {
+                    output.writeFloat(samples[i]);
+                }
+            }
+        }
+        if (!temporaryFile.renameTo(file)) {
+            file.delete();
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Can not write test duration history " + file);
+            }
+        }
+    }
+
+    /**
+     * @param double[] values Not empty
+     */
+    protected static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * Duration of a test in several reports, or of a suite split into chunks, is summed up
+     *
+     * @param TreeMap<String, Double> durations
+     * @param String key
+     * @param double seconds
+     */
+    protected void add(TreeMap<String, Double> durations, String key, double seconds) {
+        durations.put(key, durations.containsKey(key) ? durations.get(key) + seconds : seconds);
+    }
+
+    /**
+     * @param XMLStreamReader reader
+     * @param String name
+     */
+    protected String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @param XMLStreamReader reader Positioned on a testsuite or testcase element
+     */
+    protected double getSeconds(XMLStreamReader reader) {
+        try {
+            return Double.parseDouble(this.getAttribute(reader, "time"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
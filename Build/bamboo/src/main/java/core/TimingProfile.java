@@ -0,0 +1,110 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Number of chunks of sharded test suites, computed when the plan is
+ * generated from the checked in timing profile and a target duration
+ * per chunk.
+ *
+ * The profile src/main/resources/core/timing-profile.properties holds per
+ * suite the summed duration of all tests of one PHP version and the setup
+ * time of each job, both in seconds. Update it from the "Task timings report"
+ * artifact of recent runs when suites grew or shrank.
+ *
+ * The target is given by the plan and can be overridden for all plans
+ * with -Dchunks.targetSeconds=, e.g. if the agent pool changed.
+ */
+public class TimingProfile {
+
+    protected static String defaultResource = "timing-profile.properties";
+
+    /**
+     * Job keys and names carry the chunk number with at most three digits
+     */
+    protected static int maxChunks = 999;
+
+    protected Properties profile;
+
+    /**
+     * @param Properties profile
+     */
+    public TimingProfile(Properties profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Profile checked in next to the specs
+     */
+    public static TimingProfile load() {
+        Properties profile = new Properties();
+        try (InputStream input = TimingProfile.class.getResourceAsStream(defaultResource)) {
+            if (input == null) {
+                throw new IOException("Timing profile " + defaultResource + " not found");
+            }
+            profile.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new TimingProfile(profile);
+    }
+
+    /**
+     * Chunks needed to run a suite in about targetSeconds per job. Each job
+     * spends the setup time of the suite first, then runs its share of the
+     * tests with the given number of parallel workers.
+     *
+     * @param String suite Suite of the profile, e.g. "functional-mysql"
+     * @param int targetSeconds Wanted duration of one job
+     * @param int workers Parallel test processes per job
+     */
+    public int getNumberOfChunks(String suite, int targetSeconds, int workers) {
+        int target = Integer.parseInt(System.getProperty("chunks.targetSeconds", "" + targetSeconds));
+        double testSeconds = this.getSeconds(suite + ".testSeconds");
+        double setupSeconds = this.getSeconds(suite + ".setupSeconds");
+        if (target <= setupSeconds) {
+            throw new IllegalArgumentException("Target of " + target + " seconds per chunk of " + suite + " is not longer than its setup of " + setupSeconds + " seconds");
+        }
+        int chunks = (int) Math.ceil(testSeconds / ((target - setupSeconds) * Math.max(1, workers)));
+        return Math.max(1, Math.min(maxChunks, chunks));
+    }
+
+    /**
+     * Chunk number as used in job keys and names. Two digits, three
+     * if there are 100 chunks or more.
+     *
+     * @param int chunk Number of the chunk, starting with 1
+     * @param int numberOfChunks
+     */
+    public static String formatChunk(int chunk, int numberOfChunks) {
+        int digits = numberOfChunks < 100 ? 2 : 3;
+        return String.format("%0" + digits + "d", chunk);
+    }
+
+    /**
+     * @param String key
+     */
+    protected double getSeconds(String key) {
+        String value = this.profile.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Timing profile has no " + key);
+        }
+        return Double.parseDouble(value.trim());
+    }
+}
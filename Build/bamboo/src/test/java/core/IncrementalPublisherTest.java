@@ -0,0 +1,95 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlassian.bamboo.specs.api.builders.RootEntityPropertiesBuilder;
+
+public class IncrementalPublisherTest {
+    private File fingerprintDirectory;
+
+    /**
+     * Records published entities instead of sending them to a server
+     */
+    private static class RecordingPublisher extends IncrementalPublisher {
+        private ArrayList<RootEntityPropertiesBuilder<?>> published = new ArrayList<RootEntityPropertiesBuilder<?>>();
+
+        RecordingPublisher(String mode, File fingerprintDirectory) {
+            super("https://bamboo.example.com", mode, fingerprintDirectory);
+        }
+
+        @Override
+        protected void publishEntity(RootEntityPropertiesBuilder<?> entity) {
+            this.published.add(entity);
+        }
+    }
+
+    @Before
+    public void createFingerprintDirectory() throws Exception {
+        this.fingerprintDirectory = Files.createTempDirectory("publish-fingerprints").toFile();
+    }
+
+    @After
+    public void removeFingerprintDirectory() {
+        for (File file : this.fingerprintDirectory.listFiles()) {
+            file.delete();
+        }
+        this.fingerprintDirectory.delete();
+    }
+
+    @Test
+    public void unchangedPlanIsNotPublishedAgain() throws Exception {
+        RecordingPublisher first = new RecordingPublisher("changed", this.fingerprintDirectory);
+        PreMergeSpec spec = new PreMergeSpec();
+        first.publish(spec.createPlan(), spec.getDefaultPlanPermissions(PreMergeSpec.projectKey, PreMergeSpec.planKey));
+        assertEquals(2, first.published.size());
+
+        RecordingPublisher second = new RecordingPublisher("changed", this.fingerprintDirectory);
+        PreMergeSpec sameSpec = new PreMergeSpec();
+        ArrayList<String> changes = second.publish(sameSpec.createPlan(), sameSpec.getDefaultPlanPermissions(PreMergeSpec.projectKey, PreMergeSpec.planKey));
+        assertTrue(changes.isEmpty());
+        assertEquals(0, second.published.size());
+    }
+
+    @Test
+    public void dryRunReportsChangedJobsWithoutPublishing() throws Exception {
+        RecordingPublisher first = new RecordingPublisher("changed", this.fingerprintDirectory);
+        PreMergeSpec spec = new PreMergeSpec();
+        first.publish(spec.createPlan(), spec.getDefaultPlanPermissions(PreMergeSpec.projectKey, PreMergeSpec.planKey));
+
+        RecordingPublisher dryRun = new RecordingPublisher("dry-run", this.fingerprintDirectory);
+        PreMergeSpec changedSpec = new PreMergeSpec();
+        changedSpec.numberOfFunctionalMysqlJobs = 11;
+        ArrayList<String> changes = dryRun.publish(changedSpec.createPlan(), changedSpec.getDefaultPlanPermissions(PreMergeSpec.projectKey, PreMergeSpec.planKey));
+        assertTrue(changes.contains("added job FMY0PHP7311 (Func mysql 0 PHP73 11)"));
+        assertEquals(0, dryRun.published.size());
+
+        // A dry run does not store fingerprints, the change is still pending
+        RecordingPublisher second = new RecordingPublisher("changed", this.fingerprintDirectory);
+        PreMergeSpec sameChangedSpec = new PreMergeSpec();
+        sameChangedSpec.numberOfFunctionalMysqlJobs = 11;
+        second.publish(sameChangedSpec.createPlan(), sameChangedSpec.getDefaultPlanPermissions(PreMergeSpec.projectKey, PreMergeSpec.planKey));
+        assertEquals(1, second.published.size());
+    }
+}
@@ -0,0 +1,25 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SpecPublisherTest {
+    @Test
+    public void createsAndValidatesAllPlansInParallel() throws Exception {
+        assertEquals(3, new SpecPublisher().createPlans().size());
+    }
+}
@@ -0,0 +1,95 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class TestDurationRegressionDetectorTest {
+
+    @Test
+    public void slowerTestIsDetectedAgainstHistory() throws Exception {
+        File report = File.createTempFile("phpunit", ".xml");
+        File historyFile = File.createTempFile("history", ".bin");
+        historyFile.delete();
+        try {
+            TestDurationRegressionDetector detector = new TestDurationRegressionDetector();
+            TreeMap<String, float[]> history = new TreeMap<String, float[]>();
+            for (int run = 0; run < 6; run++) {
+                this.writeReport(report, 1.0 + run * 0.01, 2.0);
+                history = detector.update(history, detector.readDurations(report));
+            }
+            detector.writeHistory(historyFile, history);
+
+            this.writeReport(report, 3.0, 2.0);
+            TreeMap<String, Double> durations = detector.readDurations(report);
+            assertFalse(durations.containsKey("test Foo\\BarTest::testSkipped"));
+            ArrayList<TestDurationRegressionDetector.Regression> regressions = detector.detect(durations, detector.readHistory(historyFile));
+            ArrayList<String> keys = new ArrayList<String>();
+            for (TestDurationRegressionDetector.Regression regression : regressions) {
+                keys.add(regression.key);
+            }
+            assertEquals(3, keys.size());
+            assertTrue(keys.contains("test Foo\\BarTest::testSlow"));
+            assertTrue(keys.contains("suite Foo\\BarTest"));
+            assertTrue(keys.contains("suite Functional"));
+        } finally {
+            report.delete();
+            historyFile.delete();
+        }
+    }
+
+    @Test
+    public void historyKeepsLatestDurationsOnly() throws Exception {
+        TestDurationRegressionDetector detector = new TestDurationRegressionDetector();
+        detector.historySize = 3;
+        TreeMap<String, float[]> history = new TreeMap<String, float[]>();
+        for (int run = 1; run <= 5; run++) {
+            TreeMap<String, Double> durations = new TreeMap<String, Double>();
+            durations.put("test A::testA", (double) run);
+            history = detector.update(history, durations);
+        }
+        assertArrayEquals(new float[] {3, 4, 5}, history.get("test A::testA"), 0);
+    }
+
+    /**
+     * @param File report
+     * @param double slowSeconds
+     * @param double stableSeconds
+     */
+    private void writeReport(File report, double slowSeconds, double stableSeconds) throws Exception {
+        String xml =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<testsuites>\n" +
+            "  <testsuite name=\"Functional\" time=\"" + (slowSeconds + stableSeconds) + "\">\n" +
+            "    <testsuite name=\"Foo\\BarTest\" file=\"BarTest.php\" time=\"" + (slowSeconds + stableSeconds) + "\">\n" +
+            "      <testcase name=\"testSlow\" class=\"Foo\\BarTest\" time=\"" + slowSeconds + "\"/>\n" +
+            "      <testcase name=\"testStable\" class=\"Foo\\BarTest\" time=\"" + stableSeconds + "\"/>\n" +
+            "      <testcase name=\"testSkipped\" class=\"Foo\\BarTest\" time=\"0.000\"><skipped/></testcase>\n" +
+            "    </testsuite>\n" +
+            "  </testsuite>\n" +
+            "</testsuites>\n";
+        Files.write(report.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
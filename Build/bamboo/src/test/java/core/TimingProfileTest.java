@@ -0,0 +1,71 @@
+package core;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.atlassian.bamboo.specs.api.builders.plan.Job;
+import com.atlassian.bamboo.specs.api.util.EntityPropertiesBuilders;
+
+public class TimingProfileTest {
+
+    @Test
+    public void chunksAreComputedFromTestAndSetupSeconds() {
+        Properties properties = new Properties();
+        properties.setProperty("functional-mysql.testSeconds", "1000");
+        properties.setProperty("functional-mysql.setupSeconds", "100");
+        TimingProfile profile = new TimingProfile(properties);
+
+        assertEquals(5, profile.getNumberOfChunks("functional-mysql", 300, 1));
+        assertEquals(3, profile.getNumberOfChunks("functional-mysql", 300, 2));
+        assertEquals(1, profile.getNumberOfChunks("functional-mysql", 5000, 1));
+        assertEquals(999, profile.getNumberOfChunks("functional-mysql", 101, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetShorterThanSetupIsRejected() {
+        Properties properties = new Properties();
+        properties.setProperty("functional-mysql.testSeconds", "1000");
+        properties.setProperty("functional-mysql.setupSeconds", "100");
+        new TimingProfile(properties).getNumberOfChunks("functional-mysql", 100, 1);
+    }
+
+    @Test
+    public void chunkNumbersHaveThreeDigitsFromHundredChunks() {
+        assertEquals("07", TimingProfile.formatChunk(7, 10));
+        assertEquals("99", TimingProfile.formatChunk(99, 99));
+        assertEquals("007", TimingProfile.formatChunk(7, 120));
+        assertEquals("120", TimingProfile.formatChunk(120, 120));
+    }
+
+    @Test
+    public void jobKeysAreUniqueWithThreeDigitChunks() {
+        PreMergeSpec spec = new PreMergeSpec();
+        ArrayList<Job> jobs = spec.getJobsFunctionalTestsMysql(0, 120, "PHP73", "Install", false);
+        HashSet<String> keys = new HashSet<String>();
+        for (Job job : jobs) {
+            keys.add(EntityPropertiesBuilders.build(job).getKey().getKey());
+        }
+        assertEquals(120, keys.size());
+        assertTrue(keys.contains("FMY0PHP73001"));
+        assertTrue(keys.contains("FMY0PHP73120"));
+    }
+}
@@ -0,0 +1,37 @@
+<?php
+declare(strict_types = 1);
+namespace TYPO3\CMS\Core\Tests\Acceptance\Snapshot;
+
+/*
+ * This file is part of the TYPO3 CMS project.
+ *
+ * It is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License, either version 2
+ * of the License, or any later version.
+ *
+ * For the full copyright and license information, please read the
+ * LICENSE.txt file that was distributed with this source code.
+ *
+ * The TYPO3 project - inspiring people to share!
+ */
+
+use TYPO3\CMS\Core\Tests\Acceptance\Support\SnapshotTester;
+
+/**
+ * The Snapshot suite sets up the backend acceptance instance with
+ * BackendCoreEnvironment and only verifies the result. Build/bamboo
+ * archives the instance afterwards, backend acceptance jobs restore it.
+ */
+class InstanceCest
+{
+    /**
+     * @param SnapshotTester $I
+     */
+    public function instanceIsSetUp(SnapshotTester $I)
+    {
+        $instancePath = ORIGINAL_ROOT . 'typo3temp/var/tests/acceptance/';
+        $I->assertFileExists($instancePath . 'typo3conf/LocalConfiguration.php');
+        $I->assertFileExists($instancePath . 'typo3conf/PackageStates.php');
+        $I->assertFileExists($instancePath . 'typo3conf/ext/styleguide/ext_emconf.php');
+    }
+}
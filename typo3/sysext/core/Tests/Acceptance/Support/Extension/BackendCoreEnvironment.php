@@ -73,10 +73,17 @@ class BackendCoreEnvironment extends BackendEnvironment
     /**
      * Generate styleguide data
      *
+     * With environment variable typo3AcceptanceSnapshot set to "restored", the
+     * instance and its database have been restored from a snapshot of an earlier
+     * setup of the Snapshot suite and are used as they are. See Build/bamboo.
+     *
      * @param SuiteEvent $suiteEvent
      */
     public function bootstrapTypo3Environment(SuiteEvent $suiteEvent)
     {
+        if (getenv('typo3AcceptanceSnapshot') === 'restored') {
+            return;
+        }
         parent::bootstrapTypo3Environment($suiteEvent);
         // styleguide generator uses DataHandler for some parts. DataHandler needs an initialized BE user
         // with admin right and the live workspace.
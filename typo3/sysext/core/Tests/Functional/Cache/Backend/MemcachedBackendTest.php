@@ -42,6 +42,16 @@ class MemcachedBackendTest extends FunctionalTestCase
         parent::setUp();
     }
 
+    /**
+     * Cache identifier of the frontend, part of the key prefix of all entries.
+     * Environment variable typo3TestingMemcachedKeyPrefix separates parallel
+     * test runs using the same memcached server.
+     */
+    protected function getCacheIdentifier(): string
+    {
+        return 'pages' . (string)getenv('typo3TestingMemcachedKeyPrefix');
+    }
+
     /**
      * Initialize MemcacheBackend ($subject)
      */
@@ -88,7 +98,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function itIsPossibleToSetAndCheckExistenceInCache()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -104,7 +114,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function itIsPossibleToSetAndGetEntry()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -121,7 +131,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function getReturnsPreviouslySetDataWithVariousTypes()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -150,7 +160,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function largeDataIsStored()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -167,7 +177,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function itIsPossibleToRemoveEntryFromCache()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -185,7 +195,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function itIsPossibleToOverwriteAnEntryInTheCache()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -204,7 +214,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function findIdentifiersByTagFindsCacheEntriesWithSpecifiedTag()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -224,7 +234,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function setRemovesTagsFromPreviousSet()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -242,7 +252,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function hasReturnsFalseIfTheEntryDoesntExist()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -257,7 +267,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function removeReturnsFalseIfTheEntryDoesntExist()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -272,7 +282,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function flushByTagRemovesCacheEntriesWithSpecifiedTag()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -293,7 +303,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function flushByTagsRemovesCacheEntriesWithSpecifiedTags()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
@@ -314,7 +324,7 @@ class MemcachedBackendTest extends FunctionalTestCase
     public function flushRemovesAllCacheEntries()
     {
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
-        $frontendProphecy->getIdentifier()->willReturn('pages');
+        $frontendProphecy->getIdentifier()->willReturn($this->getCacheIdentifier());
 
         $subject = $this->initializeSubject();
         $subject->setCache($frontendProphecy->reveal());
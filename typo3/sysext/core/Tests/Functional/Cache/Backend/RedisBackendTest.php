@@ -25,7 +25,9 @@ use TYPO3\TestingFramework\Core\Functional\FunctionalTestCase;
  *
  * Warning:
  * These functional tests use and flush redis database numbers 0 and 1 on the
- * redis host specified by environment variable typo3RedisHost
+ * redis host specified by environment variable typo3RedisHost. If environment
+ * variable typo3TestingRedisDatabase is set, that database number and the next
+ * one are used instead, so parallel test runs do not flush each others data.
  *
  * @requires extension redis
  */
@@ -56,6 +58,9 @@ class RedisBackendTest extends FunctionalTestCase
         // If typo3TestingRedisPort env is set, use it, otherwise fall back to standard port
         $env = getenv('typo3TestingRedisPort');
         $backendOptions['port'] = is_string($env) ? (int)$env : 6379;
+        if (!array_key_exists('database', $backendOptions)) {
+            $backendOptions['database'] = $this->getRedisDatabase();
+        }
 
         $frontendProphecy = $this->prophesize(FrontendInterface::class);
         $frontendProphecy->getIdentifier()->willReturn('pages');
@@ -82,9 +87,21 @@ class RedisBackendTest extends FunctionalTestCase
 
         $redis = new \Redis();
         $redis->connect($redisHost, $redisPort);
+        $redis->select($this->getRedisDatabase());
         return $redis;
     }
 
+    /**
+     * Redis database number used by the tests, the next number is used
+     * by tests checking database selection.
+     */
+    protected function getRedisDatabase(): int
+    {
+        // If typo3TestingRedisDatabase env is set, use it, otherwise fall back to database 0
+        $env = getenv('typo3TestingRedisDatabase');
+        return is_string($env) ? (int)$env : 0;
+    }
+
     /**
      * @test
      */
@@ -216,8 +233,8 @@ class RedisBackendTest extends FunctionalTestCase
     public function setStoresEntriesInSelectedDatabase()
     {
         $redis = $this->setUpRedis();
-        $redis->select(1);
-        $subject = $this->setUpSubject(['database' => 1]);
+        $redis->select($this->getRedisDatabase() + 1);
+        $subject = $this->setUpSubject(['database' => $this->getRedisDatabase() + 1]);
         $identifier = $this->getUniqueId('identifier');
         $subject->set($identifier, 'data');
         $result = $redis->exists('identData:' . $identifier);
@@ -62,10 +62,13 @@ class RedisSessionBackendTest extends FunctionalTestCase
         // If typo3TestingRedisPort env is set, use it, otherwise fall back to standard port
         $env = getenv('typo3TestingRedisPort');
         $redisPort = is_string($env) ? (int)$env : 6379;
+        // If typo3TestingRedisDatabase env is set, use it, otherwise fall back to database 0
+        $env = getenv('typo3TestingRedisDatabase');
+        $redisDatabase = is_string($env) ? (int)$env : 0;
 
         $redis = new \Redis();
         $redis->connect($redisHost, $redisPort);
-        $redis->select(0);
+        $redis->select($redisDatabase);
         // Clear db to ensure no sessions exist currently
         $redis->flushDB();
 
@@ -73,7 +76,7 @@ class RedisSessionBackendTest extends FunctionalTestCase
         $this->subject->initialize(
             'default',
             [
-                'database' => 0,
+                'database' => $redisDatabase,
                 'port' => $redisPort,
                 'hostname' => $redisHost
             ]